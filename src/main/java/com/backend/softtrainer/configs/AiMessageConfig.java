@@ -0,0 +1,29 @@
+package com.backend.softtrainer.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+public class AiMessageConfig {
+
+    /**
+     * Builds the responses of the messages waiting for ai content. The content is completed from the commit of the
+     * generating transaction, the response has to run its own transactions (hearts) outside of that callback.
+     * A full queue fails the response instead of running it on the committing thread.
+     */
+    @Bean(name = "aiMessageResponseExecutor")
+    public Executor aiMessageResponseExecutor(@Value("${app.ai-message.response-threads:8}") final int threads,
+                                              @Value("${app.ai-message.response-queue-capacity:1000}") final int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("AiMessageResponse-");
+        executor.initialize();
+        return executor;
+    }
+}
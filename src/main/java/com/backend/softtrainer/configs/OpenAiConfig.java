@@ -0,0 +1,25 @@
+package com.backend.softtrainer.configs;
+
+import io.github.stefanbratanov.jvm.openai.OpenAI;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class OpenAiConfig {
+
+    /**
+     * The base url is only set to run against a local stand-in of the OpenAI api, e.g. for load tests
+     */
+    @Bean
+    public OpenAI openAI(@Value("${app.openai.base-url:}") final String baseUrl) {
+        OpenAI.Builder builder = OpenAI.newBuilder(System.getenv("OPEN_AI_SECRET_KEY"))
+            .requestTimeout(Duration.ofSeconds(10));
+        if (!baseUrl.isBlank()) {
+            builder.baseUrl(baseUrl);
+        }
+        return builder.build();
+    }
+}
@@ -5,9 +5,11 @@ import com.backend.softtrainer.dtos.ChatRequestDto;
 import com.backend.softtrainer.dtos.ChatResponseDto;
 import com.backend.softtrainer.dtos.StaticRole;
 import com.backend.softtrainer.entities.UserHyperParameter;
+import com.backend.softtrainer.repositories.ContentVersionRepository;
 import com.backend.softtrainer.repositories.HyperParameterRepository;
 import com.backend.softtrainer.repositories.SimulationRepository;
 import com.backend.softtrainer.repositories.UserHyperParameterRepository;
+import com.backend.softtrainer.services.ChatEventStreamService;
 import com.backend.softtrainer.services.ChatService;
 import com.backend.softtrainer.services.FlowService;
 import com.backend.softtrainer.services.InputMessageService;
@@ -18,15 +20,26 @@ import com.backend.softtrainer.services.auth.CustomUsrDetailsService;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/chats")
@@ -34,6 +47,11 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class ChatController {
 
+  /**
+   * The chat reads carry an ETag, the client keeps the response and revalidates it on every read
+   */
+  private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
   private final ChatService chatService;
 
   private final FlowService flowService;
@@ -54,6 +72,10 @@ public class ChatController {
 
   private final ApplicationEventPublisher eventPublisher;
 
+  private final ChatEventStreamService chatEventStreamService;
+
+  private final ContentVersionRepository contentVersionRepository;
+
   @PutMapping("/create")
   @PreAuthorize("@customUsrDetailsService.isSimulationAvailable(authentication, #chatRequestDto.simulationId)")
   public ResponseEntity<ChatResponseDto> create(@RequestBody ChatRequestDto chatRequestDto, Authentication authentication) {
@@ -132,14 +154,27 @@ public class ChatController {
     }
   }
 
+  /**
+   * With `since`, the cursor of a previous response, only the messages created or changed after it are returned.
+   * A request with the ETag of the unchanged chat gets a 304.
+   */
   //todo rename it
   @GetMapping("/get")
   @PreAuthorize("@customUsrDetailsService.isSimulationAvailable(authentication, #simulationId)")
   public ResponseEntity<ChatResponseDto> getUserChatBySimulation(@RequestParam(name = "simulationId") Long simulationId,
-                                                                 Authentication authentication) {
+                                                                 @RequestParam(name = "since", required = false)
+                                                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                                 LocalDateTime since,
+                                                                 Authentication authentication,
+                                                                 WebRequest webRequest) {
+
+    var version = contentVersionRepository.latestChatVersion(authentication.getName(), simulationId);
+    if (version.isPresent() && webRequest.checkNotModified(etag(version.get(), since))) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+    }
 
     var userDetails = (CustomUsrDetails) customUsrDetailsService.loadUserByUsername(authentication.getName());
-    var chatOptional = chatService.findChatWithMessages(userDetails.user(), simulationId);
+    var chatOptional = chatService.findLatestChat(userDetails.user(), simulationId);
 
     if (chatOptional.isEmpty()) {
       return ResponseEntity.ok(new ChatResponseDto(
@@ -157,27 +192,41 @@ public class ChatController {
     }
 
     var chat = chatOptional.get();
-    var messages = chat.getMessages().stream().toList();
+    var messages = chatService.findMessages(chat.getId(), since);
 
     var chatParams = new ChatParams(chat.getHearts());
 
-    var combinedMessages = userMessageService.combineMessages(messages, chatParams);
-    return ResponseEntity.ok(new ChatResponseDto(
+    var combinedMessages = userMessageService.combineHistory(messages, chatParams);
+    return ResponseEntity.ok().cacheControl(REVALIDATE).body(new ChatResponseDto(
       chat.getId(),
       null,
       true,
       "success",
       combinedMessages,
-      chatParams
+      chatParams,
+      ChatService.cursor(messages, since)
     ));
   }
 
+  /**
+   * With `since`, the cursor of a previous response, only the messages created or changed after it are returned.
+   * A request with the ETag of the unchanged chat gets a 304.
+   */
   @GetMapping("/get/by")
   @PreAuthorize("@customUsrDetailsService.isChatOfUser(authentication, #chatId)")
   public ResponseEntity<ChatResponseDto> getUserChatById(@RequestParam(name = "chatId") Long chatId,
-                                                         Authentication authentication) {
+                                                         @RequestParam(name = "since", required = false)
+                                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                         LocalDateTime since,
+                                                         Authentication authentication,
+                                                         WebRequest webRequest) {
+
+    var version = contentVersionRepository.chatVersion(chatId);
+    if (version.isPresent() && webRequest.checkNotModified(etag(version.get(), since))) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+    }
 
-    var chatOptional = chatService.findChatWithMessages(chatId);
+    var chatOptional = chatService.findChat(chatId);
 
     if (chatOptional.isEmpty()) {
       return ResponseEntity.ok(new ChatResponseDto(
@@ -195,21 +244,27 @@ public class ChatController {
     }
 
     var chat = chatOptional.get();
-    var messages = chat.getMessages().stream().toList();
+    var messages = chatService.findMessages(chat.getId(), since);
 
     var chatParams = new ChatParams(chat.getHearts());
 
-    var combinedMessages = userMessageService.combineMessages(messages, chatParams);
-    return ResponseEntity.ok(new ChatResponseDto(
+    var combinedMessages = userMessageService.combineHistory(messages, chatParams);
+    return ResponseEntity.ok().cacheControl(REVALIDATE).body(new ChatResponseDto(
       chat.getId(),
       null,
       true,
       "success",
       combinedMessages,
-      chatParams
+      chatParams,
+      ChatService.cursor(messages, since)
     ));
   }
 
+  @GetMapping(value = "/{chatId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @PreAuthorize("@customUsrDetailsService.isChatOfUser(authentication, #chatId)")
+  public SseEmitter subscribeToChatEvents(@PathVariable("chatId") Long chatId) {
+    return chatEventStreamService.subscribe(chatId);
+  }
 
 //  @GetMapping("/get/all")
 //  @PreAuthorize("@customUsrDetailsService.isResourceOwner(authentication, #ownerId)")
@@ -247,4 +302,14 @@ public class ChatController {
     }
   }
 
+  /**
+   * A response with `since` holds only the messages after it, so it has an ETag of its own
+   */
+  private static String etag(final String chatVersion, final LocalDateTime since) {
+    if (since == null) {
+      return chatVersion;
+    }
+    return DigestUtils.md5DigestAsHex((chatVersion + "|" + since).getBytes(StandardCharsets.UTF_8));
+  }
+
 }
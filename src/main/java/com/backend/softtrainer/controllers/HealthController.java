@@ -1,6 +1,18 @@
 package com.backend.softtrainer.controllers;
 
+import com.backend.softtrainer.interpreter.ConditionScriptPredicateCache;
+import com.backend.softtrainer.services.AiMessageCompletionRegistry;
+import com.backend.softtrainer.services.OpenAnswerClassificationCache;
+import com.backend.softtrainer.services.OpenAnswerMatcher;
+import com.backend.softtrainer.services.PromptRegistry;
+import com.backend.softtrainer.services.UserMessageService;
+import com.backend.softtrainer.services.chatgpt.AssistantMetadataMetrics;
+import com.backend.softtrainer.services.chatgpt.AssistantRequestCoalescer;
+import com.backend.softtrainer.services.chatgpt.AssistantRequestDispatcher;
+import com.backend.softtrainer.services.chatgpt.ModelRouter;
+import com.backend.softtrainer.services.flow.CompiledSimulationGraphCache;
 import com.backend.softtrainer.services.notifications.TelegramService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -22,6 +34,28 @@ public class HealthController {
 
     private final TelegramService telegramService;
 
+    private final AiMessageCompletionRegistry aiMessageCompletionRegistry;
+
+    private final AssistantMetadataMetrics assistantMetadataMetrics;
+
+    private final PromptRegistry promptRegistry;
+
+    private final OpenAnswerClassificationCache openAnswerClassificationCache;
+
+    private final OpenAnswerMatcher openAnswerMatcher;
+
+    private final AssistantRequestCoalescer assistantRequestCoalescer;
+
+    private final AssistantRequestDispatcher assistantRequestDispatcher;
+
+    private final ModelRouter modelRouter;
+
+    private final UserMessageService userMessageService;
+
+    private final CompiledSimulationGraphCache compiledSimulationGraphCache;
+
+    private final ConditionScriptPredicateCache conditionScriptPredicateCache;
+
     /**
      * General application health check
      */
@@ -60,6 +94,78 @@ public class HealthController {
         }
     }
 
+    /**
+     * Hit, miss and eviction counters of the in-memory caches
+     */
+    @GetMapping("/caches")
+    public ResponseEntity<Map<String, Object>> caches() {
+        Map<String, Object> caches = Map.of(
+            "aiMessages", cacheStatus(aiMessageCompletionRegistry.size(), aiMessageCompletionRegistry.stats()),
+            "assistants", cacheStatus(assistantMetadataMetrics.assistantCacheSize(), assistantMetadataMetrics.assistantCacheStats()),
+            "openAnswerClassifications", cacheStatus(openAnswerClassificationCache.size(), openAnswerClassificationCache.stats()),
+            "renderedMessages", cacheStatus(userMessageService.renderCacheSize(), userMessageService.renderCacheStats()),
+            "compiledFlowGraphs", cacheStatus(compiledSimulationGraphCache.size(), compiledSimulationGraphCache.stats()),
+            "showPredicates", cacheStatus(conditionScriptPredicateCache.size(), conditionScriptPredicateCache.stats()),
+            "timestamp", LocalDateTime.now()
+        );
+
+        return ResponseEntity.ok(caches);
+    }
+
+    /**
+     * Ids of the active prompts and the version of the prompt registry which serves them
+     */
+    @GetMapping("/prompts")
+    public ResponseEntity<Map<String, Object>> prompts() {
+        Map<String, Object> prompts = Map.of(
+            "version", promptRegistry.version(),
+            "activePromptIds", promptRegistry.activePromptIds(),
+            "timestamp", LocalDateTime.now()
+        );
+
+        return ResponseEntity.ok(prompts);
+    }
+
+    /**
+     * Open answers matched to an option locally and escalated to the ai classification
+     */
+    @GetMapping("/classification")
+    public ResponseEntity<Map<String, Object>> classification() {
+        Map<String, Object> classification = Map.of(
+            "localMatcher", openAnswerMatcher.stats(),
+            "timestamp", LocalDateTime.now()
+        );
+
+        return ResponseEntity.ok(classification);
+    }
+
+    /**
+     * Assistant runs started and the identical requests which shared a run already in flight, the retrieveAssistant
+     * latency the runs no longer pay
+     */
+    @GetMapping("/assistant-requests")
+    public ResponseEntity<Map<String, Object>> assistantRequests() {
+        Map<String, Object> requests = Map.of(
+            "coalescer", assistantRequestCoalescer.stats(),
+            "dispatcher", assistantRequestDispatcher.stats(),
+            "routing", modelRouter.stats(),
+            "latencySaved", assistantMetadataMetrics.assistantLatencySaved(),
+            "timestamp", LocalDateTime.now()
+        );
+
+        return ResponseEntity.ok(requests);
+    }
+
+    private Map<String, Object> cacheStatus(long size, CacheStats stats) {
+        return Map.of(
+            "size", size,
+            "hits", stats.hitCount(),
+            "misses", stats.missCount(),
+            "hitRate", stats.hitRate(),
+            "evictions", stats.evictionCount()
+        );
+    }
+
     /**
      * Test Telegram notification (only for testing purposes)
      * This endpoint should be secured or removed in production
@@ -7,12 +7,17 @@ import com.backend.softtrainer.dtos.client.UserMultiChoiceTaskMessageDto;
 import com.backend.softtrainer.dtos.client.UserSingleChoiceMessageDto;
 import com.backend.softtrainer.dtos.client.UserSingleChoiceTaskMessageDto;
 import com.backend.softtrainer.dtos.messages.MessageRequestDto;
+import com.backend.softtrainer.events.ChatHeartsUpdatedEvent;
 import com.backend.softtrainer.exceptions.SendMessageConditionException;
 import com.backend.softtrainer.repositories.ChatRepository;
 import com.backend.softtrainer.services.InputMessageService;
 import com.backend.softtrainer.services.UserMessageService;
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -20,36 +25,62 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/message")
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Slf4j
 public class MessageController {
 
+  private static final String PENDING_AI_MESSAGE = "The message is still being generated, please try again later";
+
   private final InputMessageService inputMessageService;
 
   private final UserMessageService userMessageService;
 
   private final ChatRepository chatRepository;
 
+  private final ApplicationEventPublisher eventPublisher;
+
+  @Value("${app.ai-message.wait-timeout:10s}")
+  private Duration aiMessageWaitTimeout;
+
+  /**
+   * Responses waiting for ai content continue on their own threads, the thread completing the content is still in the
+   * commit of the generating transaction and an update made there would be lost
+   */
+  @Autowired
+  @Qualifier("aiMessageResponseExecutor")
+  private Executor responseExecutor;
+
   @PutMapping("/send")
   @PreAuthorize("@customUsrDetailsService.isChatOfUser(authentication, #messageRequestDto?.chatId)")
   public CompletableFuture<ResponseEntity<ChatResponseDto>> create(@RequestBody MessageRequestDto messageRequestDto) {
     try {
-      return inputMessageService.buildResponse(messageRequestDto)
-        .thenApply(chatData -> {
+      var response = inputMessageService.buildResponse(messageRequestDto);
+      var waitsForAiContent = !response.isDone();
+      var chatResponse = response
+        .thenApplyAsync(chatData -> {
 
           var prevHearts = chatData.params().getHearts();
           var combinedMessage = userMessageService.combineMessages(chatData.messages(), chatData.params());
 
           if (Objects.nonNull(prevHearts) && !Objects.equals(prevHearts, chatData.params().getHearts())) {
             chatRepository.updateHearts(messageRequestDto.getChatId(), chatData.params().getHearts());
+            eventPublisher.publishEvent(new ChatHeartsUpdatedEvent(
+              messageRequestDto.getChatId(),
+              chatData.params().getHearts()
+            ));
           }
 
           var chatOptional = chatRepository.findById(messageRequestDto.getChatId());
@@ -74,7 +105,14 @@ public class MessageController {
             combinedMessage,
             chatData.params()
           ));
-        });
+        }, responseExecutor(response));
+      if (!waitsForAiContent) {
+        return chatResponse;
+      }
+      // a hint or result sent before its content is there gets the same answer as /message/get
+      return chatResponse
+        .completeOnTimeout(pendingAiMessage(messageRequestDto), aiMessageWaitTimeout.toMillis(), TimeUnit.MILLISECONDS)
+        .whenComplete((result, e) -> response.cancel(false));
     } catch (SendMessageConditionException e) {
       log.error(e.getMessage());
       return CompletableFuture.completedFuture(
@@ -91,10 +129,29 @@ public class MessageController {
 
   @PostMapping("/get")
   @PreAuthorize("@customUsrDetailsService.isChatOfUser(authentication, #messageRequestDto?.chatId)")
-  public CompletableFuture<ResponseEntity<ChatResponseDto>> getHintMessage(@RequestBody MessageRequestDto messageRequestDto) {
+  public DeferredResult<ResponseEntity<ChatResponseDto>> getHintMessage(@RequestBody MessageRequestDto messageRequestDto) {
+    var deferredResult = new DeferredResult<ResponseEntity<ChatResponseDto>>(
+      aiMessageWaitTimeout.toMillis(),
+      pendingAiMessage(messageRequestDto)
+    );
+
     try {
-      return inputMessageService.buildResponse(messageRequestDto)
-        .thenApply(chatData -> {
+      var response = inputMessageService.buildResponse(messageRequestDto);
+      // the client already got the pending answer, the hearts are left to the request reading the message later
+      deferredResult.onTimeout(() -> log.warn(
+        "The message {} of the chat {} is not generated in {}",
+        messageRequestDto.getId(),
+        messageRequestDto.getChatId(),
+        aiMessageWaitTimeout
+      ));
+      // a request which is answered, timed out or dropped stops waiting for the content and re-reading the db
+      deferredResult.onCompletion(() -> response.cancel(false));
+
+      response
+        .thenApplyAsync(chatData -> {
+          if (deferredResult.isSetOrExpired()) {
+            throw new CancellationException("The request for the message " + messageRequestDto.getId() + " timed out");
+          }
 
           log.info(
             "The messages for the chat with the specific message looks like : {} when size is {}",
@@ -108,6 +165,10 @@ public class MessageController {
 
           if (!Objects.equals(prevHearts, chatData.params().getHearts())) {
             chatRepository.updateHearts(messageRequestDto.getChatId(), chatData.params().getHearts());
+            eventPublisher.publishEvent(new ChatHeartsUpdatedEvent(
+              messageRequestDto.getChatId(),
+              chatData.params().getHearts()
+            ));
           }
           var chatResponse = new ChatResponseDto(
             messageRequestDto.getChatId(),
@@ -124,10 +185,18 @@ public class MessageController {
             combinedMessage
           );
           return ResponseEntity.ok(chatResponse);
+        }, responseExecutor(response))
+        .whenComplete((chatResponse, e) -> {
+          if (Objects.isNull(e)) {
+            deferredResult.setResult(chatResponse);
+          } else if (!deferredResult.isSetOrExpired()) {
+            log.error("Error while getting the message {}", messageRequestDto.getId(), e);
+            deferredResult.setErrorResult(e);
+          }
         });
     } catch (SendMessageConditionException e) {
       log.error(e.getMessage());
-      return CompletableFuture.completedFuture(
+      deferredResult.setResult(
         ResponseEntity.ok(new ChatResponseDto(
           messageRequestDto.getChatId(),
           null,
@@ -137,6 +206,26 @@ public class MessageController {
           null
         )));
     }
+    return deferredResult;
+  }
+
+  /**
+   * A response which is already there, a plain answer or stored ai content, is built on the request thread, only a
+   * response waiting for ai content goes to the response executor
+   */
+  private Executor responseExecutor(final CompletableFuture<?> response) {
+    return response.isDone() ? Runnable::run : responseExecutor;
+  }
+
+  private static ResponseEntity<ChatResponseDto> pendingAiMessage(final MessageRequestDto messageRequestDto) {
+    return ResponseEntity.ok(new ChatResponseDto(
+      messageRequestDto.getChatId(),
+      null,
+      false,
+      PENDING_AI_MESSAGE,
+      Collections.emptyList(),
+      null
+    ));
   }
 
   private void removeNonInteractedMessages(List<UserMessageDto> messages) {
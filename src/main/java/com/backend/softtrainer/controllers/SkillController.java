@@ -3,11 +3,14 @@ package com.backend.softtrainer.controllers;
 import com.backend.softtrainer.dtos.AllSimulationsResponseDto;
 import com.backend.softtrainer.dtos.AllSkillsResponseDto;
 import com.backend.softtrainer.entities.Skill;
+import com.backend.softtrainer.repositories.ContentVersionRepository;
 import com.backend.softtrainer.services.SkillService;
 import com.backend.softtrainer.services.auth.CustomUsrDetails;
 import com.backend.softtrainer.services.auth.CustomUsrDetailsService;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -15,6 +18,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashSet;
 import java.util.Objects;
@@ -30,10 +34,17 @@ import static com.backend.softtrainer.utils.Converter.convertSkills;
 @Slf4j
 public class SkillController {
 
+  /**
+   * The skill reads carry an ETag, the client keeps the response and revalidates it on every read
+   */
+  private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
   private final SkillService skillService;
 
   private final CustomUsrDetailsService customUsrDetailsService;
 
+  private final ContentVersionRepository contentVersionRepository;
+
   @Deprecated
   @GetMapping
   @PreAuthorize("@customUsrDetailsService.orgHasEmployee(authentication, #organization)")
@@ -61,25 +72,45 @@ public class SkillController {
     return ResponseEntity.ok(new AllSkillsResponseDto(converted, converted, true, "success"));
   }
 
+  /**
+   * A request with the ETag of the unchanged skills gets a 304
+   */
   @GetMapping("/available")
-  public ResponseEntity<AllSkillsResponseDto> getSkills(final Authentication authentication) {
+  public ResponseEntity<AllSkillsResponseDto> getSkills(final Authentication authentication,
+                                                        final WebRequest webRequest) {
     var username = authentication.getName();
+    var version = contentVersionRepository.availableSkillsVersion(username);
+    if (version.isPresent() && webRequest.checkNotModified(version.get())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+    }
     var skills = skillService.getAvailableSkill(username)
       .stream()
       .filter(skill -> !skill.isHidden() && !skill.isAdminHidden())
       .collect(Collectors.toSet());
     var converted = convertSkills(skills);
-    return ResponseEntity.ok(new AllSkillsResponseDto(converted, converted, true, "success"));
+    return ResponseEntity.ok()
+      .cacheControl(REVALIDATE)
+      .body(new AllSkillsResponseDto(converted, converted, true, "success"));
   }
 
+  /**
+   * A request with the ETag of the unchanged simulations and chats of the skill gets a 304
+   */
   @GetMapping("/simulations")
   @PreAuthorize("@customUsrDetailsService.isSkillAvailable(authentication, #skillId)")
   public ResponseEntity<AllSimulationsResponseDto> getAllSimulations(@RequestParam(name = "skillId") Long skillId,
-                                                                     final Authentication authentication) {
+                                                                     final Authentication authentication,
+                                                                     final WebRequest webRequest) {
+    var version = contentVersionRepository.skillSimulationsVersion(authentication.getName(), skillId);
+    if (version.isPresent() && webRequest.checkNotModified(version.get())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build();
+    }
     var userDetails = (CustomUsrDetails) customUsrDetailsService.loadUserByUsername(authentication.getName());
 
     var simulations = skillService.findSimulationsBySkill(userDetails.user(), skillId);
-    return ResponseEntity.ok(new AllSimulationsResponseDto(skillId, simulations, true, "success"));
+    return ResponseEntity.ok()
+      .cacheControl(REVALIDATE)
+      .body(new AllSimulationsResponseDto(skillId, simulations, true, "success"));
   }
 
 }
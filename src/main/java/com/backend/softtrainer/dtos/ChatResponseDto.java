@@ -1,14 +1,30 @@
 package com.backend.softtrainer.dtos;
 
 import com.backend.softtrainer.dtos.client.UserMessageDto;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * @param cursor pass it as `since` to load only the messages created or changed after this response
+ */
 public record ChatResponseDto(@JsonProperty("chat_id") Long chatId,
                               @JsonProperty("skill_id") Long skillId,
                               boolean success,
                               @JsonProperty("error_message") String errorMessage,
                               List<UserMessageDto> messages,
-                              ChatParams params) {
+                              ChatParams params,
+                              @JsonInclude(JsonInclude.Include.NON_NULL) LocalDateTime cursor) {
+
+  public ChatResponseDto(final Long chatId,
+                         final Long skillId,
+                         final boolean success,
+                         final String errorMessage,
+                         final List<UserMessageDto> messages,
+                         final ChatParams params) {
+    this(chatId, skillId, success, errorMessage, messages, params, null);
+  }
+
 }
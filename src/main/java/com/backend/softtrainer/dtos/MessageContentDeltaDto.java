@@ -0,0 +1,7 @@
+package com.backend.softtrainer.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record MessageContentDeltaDto(@JsonProperty("message_id") String messageId,
+                                     String delta) {
+}
@@ -0,0 +1,52 @@
+package com.backend.softtrainer.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stored classification of an open answer, see {@link com.backend.softtrainer.services.OpenAnswerClassificationCache}
+ */
+@Entity
+@Table(name = "open_answer_classification")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OpenAnswerClassification {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "flow_node_id", nullable = false)
+  private Long flowNodeId;
+
+  @Column(name = "options_hash", nullable = false, length = 64)
+  private String optionsHash;
+
+  @Column(name = "answer_hash", nullable = false, length = 64)
+  private String answerHash;
+
+  @Column(name = "normalized_answer", nullable = false, length = 2000)
+  private String normalizedAnswer;
+
+  @Column(name = "prompt_id")
+  private Long promptId;
+
+  @Column(columnDefinition = "TEXT", nullable = false)
+  private String response;
+
+  @Column(name = "created_at", nullable = false)
+  private LocalDateTime createdAt;
+
+}
@@ -1,8 +1,10 @@
 package com.backend.softtrainer.entities;
 
+import com.backend.softtrainer.events.PromptEntityListener;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import lombok.AllArgsConstructor;
@@ -11,6 +13,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity(name = "prompts")
+@EntityListeners(PromptEntityListener.class)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
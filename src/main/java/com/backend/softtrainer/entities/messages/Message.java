@@ -16,6 +16,8 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Transient;
 import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
@@ -23,10 +25,11 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import lombok.experimental.SuperBuilder;
-import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.SourceType;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Entity(name = "messages")
 @Data
@@ -36,14 +39,24 @@ import java.time.LocalDateTime;
 @ToString(exclude = {"chat", "flowNode"})
 public class Message {
 
+  private static final AtomicReference<LocalDateTime> LAST_TIMESTAMP = new AtomicReference<>(LocalDateTime.MIN);
+
+  private static volatile Duration clockOffset = Duration.ZERO;
+
   @Id
   @JsonIgnore
   private String id;
 
-  @Column(name = "timestamp", insertable = false, updatable = false)
-  @CreationTimestamp(source = SourceType.DB)
+  @Column(name = "timestamp", updatable = false)
   private LocalDateTime timestamp;
 
+  /**
+   * Moves on every change of the message, so a client can load only the messages changed since its cursor
+   */
+  @JsonIgnore
+  @Column(name = "updated_at")
+  private LocalDateTime updatedAt;
+
   @JsonIgnore
   @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
   @JoinColumn(name = "chat_id")
@@ -86,4 +99,42 @@ public class Message {
   @Column(name = "user_response_time", nullable = true)
   private Long userResponseTime;
 
+  /**
+   * Messages of one user action are inserted in a single batch, so the database clock would give them all the same
+   * transaction time. Timestamps are assigned here instead, strictly increasing at the column's microsecond precision.
+   */
+  @PrePersist
+  public void assignTimestamp() {
+    if (timestamp == null) {
+      timestamp = nextTimestamp();
+    }
+    if (updatedAt == null) {
+      updatedAt = timestamp;
+    }
+  }
+
+  @PreUpdate
+  public void assignUpdatedAt() {
+    updatedAt = nextTimestamp();
+  }
+
+  /**
+   * Strictly increasing across the messages of this node, so messages created one after another keep their order.
+   * Follows the database clock aligned by {@link #alignClock}, so the nodes of the cluster agree on the order of their
+   * messages whatever their own clocks and time zones are.
+   */
+  public static LocalDateTime nextTimestamp() {
+    return LAST_TIMESTAMP.updateAndGet(last -> {
+      var now = LocalDateTime.now().plus(clockOffset).truncatedTo(ChronoUnit.MICROS);
+      return now.isAfter(last) ? now : last.plus(1, ChronoUnit.MICROS);
+    });
+  }
+
+  /**
+   * Takes the offset of the database clock, the timestamps of this node never move back when it shrinks
+   */
+  public static void alignClock(final LocalDateTime databaseNow) {
+    clockOffset = Duration.between(LocalDateTime.now(), databaseNow);
+  }
+
 }
@@ -0,0 +1,14 @@
+package com.backend.softtrainer.events;
+
+import lombok.Getter;
+
+@Getter
+public class ChatHeartsUpdatedEvent {
+    private final Long chatId;
+    private final Double hearts;
+
+    public ChatHeartsUpdatedEvent(Long chatId, Double hearts) {
+        this.chatId = chatId;
+        this.hearts = hearts;
+    }
+}
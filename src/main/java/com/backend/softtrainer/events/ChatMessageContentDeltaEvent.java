@@ -0,0 +1,19 @@
+package com.backend.softtrainer.events;
+
+import lombok.Getter;
+
+/**
+ * Published for every part of ai content while a hint or simulation result is still being generated.
+ */
+@Getter
+public class ChatMessageContentDeltaEvent {
+    private final Long chatId;
+    private final String messageId;
+    private final String delta;
+
+    public ChatMessageContentDeltaEvent(Long chatId, String messageId, String delta) {
+        this.chatId = chatId;
+        this.messageId = messageId;
+        this.delta = delta;
+    }
+}
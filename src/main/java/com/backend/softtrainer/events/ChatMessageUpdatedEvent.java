@@ -0,0 +1,18 @@
+package com.backend.softtrainer.events;
+
+import com.backend.softtrainer.entities.messages.Message;
+import lombok.Getter;
+
+/**
+ * Published when the generated content of a chat message (hint, simulation result) is stored.
+ */
+@Getter
+public class ChatMessageUpdatedEvent {
+    private final Long chatId;
+    private final Message message;
+
+    public ChatMessageUpdatedEvent(Long chatId, Message message) {
+        this.chatId = chatId;
+        this.message = message;
+    }
+}
@@ -0,0 +1,17 @@
+package com.backend.softtrainer.events;
+
+import com.backend.softtrainer.entities.PromptName;
+import lombok.Getter;
+
+@Getter
+public class PromptChangedEvent {
+    private final Long promptId;
+    private final PromptName name;
+    private final String assistantId;
+
+    public PromptChangedEvent(Long promptId, PromptName name, String assistantId) {
+        this.promptId = promptId;
+        this.name = name;
+        this.assistantId = assistantId;
+    }
+}
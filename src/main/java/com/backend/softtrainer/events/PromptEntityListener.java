@@ -0,0 +1,26 @@
+package com.backend.softtrainer.events;
+
+import com.backend.softtrainer.entities.Prompt;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes {@link PromptChangedEvent} for every prompt row written through JPA.
+ */
+@Component
+@RequiredArgsConstructor
+public class PromptEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onPromptChanged(Prompt prompt) {
+        eventPublisher.publishEvent(new PromptChangedEvent(prompt.getId(), prompt.getName(), prompt.getAssistantId()));
+    }
+}
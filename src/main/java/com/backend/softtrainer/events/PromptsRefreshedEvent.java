@@ -0,0 +1,16 @@
+package com.backend.softtrainer.events;
+
+import lombok.Getter;
+
+import java.util.Set;
+
+@Getter
+public class PromptsRefreshedEvent {
+    private final long version;
+    private final Set<String> assistantIds;
+
+    public PromptsRefreshedEvent(long version, Set<String> assistantIds) {
+        this.version = version;
+        this.assistantIds = assistantIds;
+    }
+}
@@ -0,0 +1,59 @@
+package com.backend.softtrainer.interpreter;
+
+import com.backend.softtrainer.entities.messages.Message;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Latest message of a chat per flow node order number, built from the messages the request has already loaded.
+ * It lets show predicates read earlier answers without a query per referenced message.
+ * Not thread-safe, it lives only as long as one /message/send request.
+ */
+public final class ChatMessageSnapshot {
+
+  private static final Comparator<LocalDateTime> TIMESTAMP_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+  private final Long chatId;
+
+  private final Map<Long, Message> latestByOrderNumber = new HashMap<>();
+
+  private ChatMessageSnapshot(final Long chatId) {
+    this.chatId = chatId;
+  }
+
+  public static ChatMessageSnapshot of(final Long chatId, final Collection<Message> messages) {
+    var snapshot = new ChatMessageSnapshot(chatId);
+    messages.forEach(snapshot::add);
+    return snapshot;
+  }
+
+  public Long getChatId() {
+    return chatId;
+  }
+
+  /**
+   * Registers a message of the chat, e.g. one stored during the current request.
+   * The message wins over an already known one with the same order number unless it is older.
+   */
+  public void add(final Message message) {
+    if (Objects.isNull(message) || Objects.isNull(message.getFlowNode())) {
+      return;
+    }
+    latestByOrderNumber.merge(
+      message.getFlowNode().getOrderNumber(),
+      message,
+      (known, candidate) -> TIMESTAMP_ORDER.compare(candidate.getTimestamp(), known.getTimestamp()) >= 0 ? candidate : known
+    );
+  }
+
+  public Optional<Message> findLatestByOrderNumber(final long orderNumber) {
+    return Optional.ofNullable(latestByOrderNumber.get(orderNumber));
+  }
+
+}
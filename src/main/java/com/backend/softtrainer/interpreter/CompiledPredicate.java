@@ -0,0 +1,21 @@
+package com.backend.softtrainer.interpreter;
+
+import com.oruel.scriptforge.compiler.AstNode;
+import com.oruel.scriptforge.engine.AstEngine;
+import kotlin.Pair;
+
+import java.util.List;
+
+/**
+ * Show predicate of a flow node which is already tokenized and parsed into the ConditionScript AST.
+ * The AST is immutable, so one instance can be evaluated any number of times against different libs.
+ */
+public record CompiledPredicate(String source, AstNode ast) {
+
+  public boolean evaluate(final AstEngine engine, final List<? extends Pair<String, ?>> lib) {
+    engine.reset();
+    engine.loadLib(lib);
+    return Boolean.TRUE.equals(engine.execute(ast));
+  }
+
+}
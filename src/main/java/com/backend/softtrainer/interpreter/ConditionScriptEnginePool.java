@@ -0,0 +1,48 @@
+package com.backend.softtrainer.interpreter;
+
+import com.oruel.conditionscript.script.ConditionScriptScriptEngine;
+import com.oruel.scriptforge.engine.AstEngine;
+import kotlin.Pair;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * ConditionScript engines keep the loaded libs and intermediate values of the running predicate,
+ * so an engine is borrowed by exactly one evaluation at a time and predicates of different chats run in parallel.
+ */
+@Component
+public class ConditionScriptEnginePool {
+
+  private static final int MAX_IDLE_ENGINES = 64;
+
+  private final BlockingQueue<AstEngine> idleEngines = new ArrayBlockingQueue<>(MAX_IDLE_ENGINES);
+
+  public boolean evaluate(final CompiledPredicate predicate, final List<? extends Pair<String, ?>> lib) {
+    var engine = borrow();
+    try {
+      return predicate.evaluate(engine, lib);
+    } finally {
+      release(engine);
+    }
+  }
+
+  public int idleEngines() {
+    return idleEngines.size();
+  }
+
+  private AstEngine borrow() {
+    var engine = idleEngines.poll();
+    return Objects.nonNull(engine) ? engine : new ConditionScriptScriptEngine();
+  }
+
+  private void release(final AstEngine engine) {
+    //drop the libs of the finished evaluation, they hold the chat of the request
+    engine.reset();
+    idleEngines.offer(engine);
+  }
+
+}
@@ -0,0 +1,78 @@
+package com.backend.softtrainer.interpreter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.oruel.conditionscript.script.ConditionScriptTokenTypesProvider;
+import com.oruel.scriptforge.compiler.Compiler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+
+/**
+ * Keeps the parsed show predicates of flow nodes, so the predicate text is lexed and parsed only once per node.
+ * The predicates of the nodes nobody plays anymore are dropped by size, the ones of a replaced flow are evicted with it.
+ */
+@Slf4j
+@Component
+public class ConditionScriptPredicateCache {
+
+  private final Cache<PredicateKey, CompiledPredicate> compiledPredicates;
+
+  public ConditionScriptPredicateCache(@Value("${app.predicate-cache.max-entries:10000}") final long maxEntries) {
+    this.compiledPredicates = Caffeine.newBuilder()
+      .maximumSize(maxEntries)
+      .recordStats()
+      .build();
+  }
+
+  public CompiledPredicate getOrCompile(final Long flowNodeId, final String predicate) {
+    if (Objects.isNull(flowNodeId)) {
+      return compile(predicate);
+    }
+    var key = new PredicateKey(flowNodeId, predicate.hashCode());
+    var cached = compiledPredicates.getIfPresent(key);
+    if (Objects.nonNull(cached) && cached.source().equals(predicate)) {
+      return cached;
+    }
+    var compiled = compile(predicate);
+    compiledPredicates.put(key, compiled);
+    log.info("The show predicate of flow node {} is compiled and cached", flowNodeId);
+    return compiled;
+  }
+
+  /**
+   * Drops the predicates of the flow nodes, e.g. the nodes of a simulation replaced by a re-upload
+   */
+  public void evict(final Collection<Long> flowNodeIds) {
+    var ids = new HashSet<>(flowNodeIds);
+    compiledPredicates.asMap().keySet().removeIf(key -> ids.contains(key.flowNodeId()));
+  }
+
+  public long size() {
+    compiledPredicates.cleanUp();
+    return compiledPredicates.estimatedSize();
+  }
+
+  public CacheStats stats() {
+    return compiledPredicates.stats();
+  }
+
+  public void clear() {
+    compiledPredicates.invalidateAll();
+  }
+
+  //the compiler keeps no state between calls but is not documented as thread-safe, so every compilation gets its own
+  private CompiledPredicate compile(final String predicate) {
+    var ast = new Compiler(new ConditionScriptTokenTypesProvider()).compile(predicate);
+    return new CompiledPredicate(predicate, ast);
+  }
+
+  private record PredicateKey(Long flowNodeId, int predicateHash) {
+  }
+
+}
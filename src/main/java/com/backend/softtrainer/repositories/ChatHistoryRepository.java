@@ -0,0 +1,140 @@
+package com.backend.softtrainer.repositories;
+
+import com.backend.softtrainer.entities.Character;
+import com.backend.softtrainer.entities.enums.MessageType;
+import com.backend.softtrainer.entities.messages.ContentMessage;
+import com.backend.softtrainer.entities.messages.EnterTextQuestionMessage;
+import com.backend.softtrainer.entities.messages.HintMessage;
+import com.backend.softtrainer.entities.messages.LastSimulationMessage;
+import com.backend.softtrainer.entities.messages.Message;
+import com.backend.softtrainer.entities.messages.MultiChoiceTaskQuestionMessage;
+import com.backend.softtrainer.entities.messages.SingleChoiceQuestionMessage;
+import com.backend.softtrainer.entities.messages.SingleChoiceTaskQuestionMessage;
+import com.backend.softtrainer.entities.messages.TextMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read model of the chat history: one flat query over the single-table messages, joined only with the characters,
+ * reading just the columns the client messages are rendered from.
+ * Loading the chat entity instead materializes every message with its flow node, the simulation and the skill of it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChatHistoryRepository {
+
+  private static final String SELECT_MESSAGES = "SELECT m.id, m.dtype, m.version, m.timestamp, m.updated_at, m.message_type, "
+    + "m.response_time_limit, m.content, m.answer, m.options, m.correct, m.preview, m.title, "
+    + "c.name AS character_name, c.avatar AS character_avatar, c.flow_character_id "
+    + "FROM messages m LEFT JOIN characters c ON c.id = m.character_id ";
+
+  private static final String FIND_MESSAGES = SELECT_MESSAGES + "WHERE m.chat_id = ? ORDER BY m.timestamp";
+
+  private static final String FIND_CHANGED_SINCE = SELECT_MESSAGES
+    + "WHERE m.chat_id = ? AND (m.timestamp > ? OR m.updated_at > ?) ORDER BY m.timestamp";
+
+  private static final RowMapper<MessageRow> ROW_MAPPER = ChatHistoryRepository::mapRow;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * One message as stored, the message type is the subclass of the single-table inheritance
+   */
+  public record MessageRow(String id,
+                           String dtype,
+                           Integer version,
+                           LocalDateTime timestamp,
+                           LocalDateTime updatedAt,
+                           MessageType messageType,
+                           Long responseTimeLimit,
+                           String content,
+                           String answer,
+                           String options,
+                           String correct,
+                           String preview,
+                           String title,
+                           Character character) {
+
+    /**
+     * @return a detached message of the subclass, with only the fields the rendering reads, null for the messages
+     * which are never rendered (the answer messages)
+     */
+    public Message toMessage() {
+      return switch (dtype) {
+        case "TextMessage" -> fill(TextMessage.builder().content(content));
+        case "ContentMessage" -> fill(ContentMessage.builder().content(content).preview(preview));
+        case "HintMessage" -> fill(HintMessage.builder().content(content).title(title));
+        case "LastSimulationMessage" -> fill(LastSimulationMessage.builder().content(content).title(title));
+        case "EnterTextQuestionMessage" -> fill(EnterTextQuestionMessage.builder()
+          .content(content).answer(answer).options(options).correct(correct));
+        case "SingleChoiceQuestionMessage" -> fill(SingleChoiceQuestionMessage.builder()
+          .answer(answer).options(options).correct(correct));
+        case "SingleChoiceTaskQuestionMessage" -> fill(SingleChoiceTaskQuestionMessage.builder()
+          .answer(answer).options(options).correct(correct));
+        case "MultiChoiceTaskQuestionMessage" -> fill(MultiChoiceTaskQuestionMessage.builder()
+          .answer(answer).options(options).correct(correct));
+        default -> null;
+      };
+    }
+
+    private Message fill(final Message.MessageBuilder<?, ?> builder) {
+      return builder
+        .id(id)
+        .version(version)
+        .timestamp(timestamp)
+        .updatedAt(updatedAt)
+        .messageType(messageType)
+        .responseTimeLimit(responseTimeLimit)
+        .character(character)
+        .build();
+    }
+  }
+
+  public List<MessageRow> findMessages(final Long chatId) {
+    return jdbcTemplate.query(FIND_MESSAGES, ROW_MAPPER, chatId);
+  }
+
+  /**
+   * Messages created or changed after the cursor, rows written before updated_at existed are matched by the timestamp
+   */
+  public List<MessageRow> findChangedSince(final Long chatId, final LocalDateTime since) {
+    return jdbcTemplate.query(FIND_CHANGED_SINCE, ROW_MAPPER, chatId, since, since);
+  }
+
+  static MessageRow mapRow(final ResultSet rs, final int rowNum) throws SQLException {
+    var messageType = rs.getString("message_type");
+    var flowCharacterId = rs.getObject("flow_character_id", Long.class);
+    Character character = null;
+    if (flowCharacterId != null) {
+      character = Character.builder()
+        .name(rs.getString("character_name"))
+        .avatar(rs.getString("character_avatar"))
+        .flowCharacterId(flowCharacterId)
+        .build();
+    }
+    return new MessageRow(
+      rs.getString("id"),
+      rs.getString("dtype"),
+      rs.getObject("version", Integer.class),
+      rs.getObject("timestamp", LocalDateTime.class),
+      rs.getObject("updated_at", LocalDateTime.class),
+      messageType == null ? null : MessageType.valueOf(messageType),
+      rs.getObject("response_time_limit", Long.class),
+      rs.getString("content"),
+      rs.getString("answer"),
+      rs.getString("options"),
+      rs.getString("correct"),
+      rs.getString("preview"),
+      rs.getString("title"),
+      character
+    );
+  }
+
+}
@@ -23,6 +23,11 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
   boolean existsByUserAndSimulationId(@Param("user") final User user,
                                       @Param("simulationId") final Long simulationId);
 
+  @Query("SELECT c.id FROM chats c WHERE c.user = :user AND c.simulation.id = :simulationId " +
+    "AND EXISTS (SELECT m.id FROM messages m WHERE m.chat = c) ORDER BY c.timestamp DESC LIMIT 1")
+  Optional<Long> findLatestChatIdWithMessages(@Param("user") final User user,
+                                              @Param("simulationId") final Long simulationId);
+
   boolean existsByIdAndUser(@Param("id") final Long id, @Param("user") final User user);
 
 
@@ -30,10 +35,6 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
   List<Chat> findByUserAndSimulationWithMessages(@Param("user") final User user,
                                                  @Param("simulation") final Simulation simulation);
 
-  @Query("SELECT c FROM chats c JOIN FETCH c.messages WHERE c.user = :user AND c.simulation.id = :simulationId")
-  List<Chat> findByUserAndSimulationNameWithMessages(@Param("user") final User user,
-                                                     @Param("simulationId") final Long simulationId);
-
   @Query("SELECT c FROM chats c JOIN FETCH c.messages WHERE c.user = :user AND c.simulation.name = :simulationName")
   List<Chat> findByUserAndSimulationNameWithMessages(@Param("user") final User user,
                                                      @Param("simulationName") final String simulationName);
@@ -0,0 +1,83 @@
+package com.backend.softtrainer.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Fingerprints of what the read endpoints return, computed in one aggregate query each, so a client polling with the
+ * ETag of its last response gets a 304 without the chat or the skills being loaded.
+ * A fingerprint covers every column the response is built from, the rows are hashed in their text form which keeps a
+ * null apart from an empty value.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ContentVersionRepository {
+
+  private static final String CHAT_VERSION = "SELECT md5(ROW(c.id, c.hearts, c.is_finished, count(m.id), "
+    + "max(m.updated_at), sum(m.version))::text) "
+    + "FROM chats c LEFT JOIN messages m ON m.chat_id = c.id ";
+
+  private static final String CHAT_VERSION_BY_ID = CHAT_VERSION
+    + "WHERE c.id = ? GROUP BY c.id, c.hearts, c.is_finished";
+
+  private static final String LATEST_CHAT_VERSION = CHAT_VERSION
+    + "WHERE c.id = (SELECT lc.id FROM chats lc WHERE lc.user_id = (SELECT u.id FROM users u WHERE u.email = ?) "
+    + "AND lc.simulation_id = ? AND EXISTS (SELECT 1 FROM messages lm WHERE lm.chat_id = lc.id) "
+    + "ORDER BY lc.timestamp DESC LIMIT 1) "
+    + "GROUP BY c.id, c.hearts, c.is_finished";
+
+  private static final String AVAILABLE_SKILLS_VERSION = "SELECT md5(array_agg(ROW(s.id, s.name, s.avatar) "
+    + "ORDER BY s.id)::text) "
+    + "FROM users u "
+    + "JOIN organizations_skills os ON os.organization_id = u.organization_id "
+    + "JOIN skills s ON s.id = os.skill_id "
+    + "WHERE u.email = ? AND NOT s.is_hidden AND NOT coalesce(s.is_admin_hidden, false)";
+
+  private static final String SKILL_SIMULATIONS_VERSION = "SELECT md5(ROW(sk.is_hidden, sk.is_admin_hidden, "
+    + "array_agg(ROW(s.id, s.name, s.avatar, s.is_open, ss.simulations, ch.finished) ORDER BY s.id))::text) "
+    + "FROM skills sk "
+    + "LEFT JOIN skills_simulations ss ON ss.skills_id = sk.id "
+    + "LEFT JOIN simulations s ON s.id = ss.simulations_key "
+    + "LEFT JOIN (SELECT c.simulation_id, bool_or(c.is_finished) AS finished FROM chats c "
+    + "WHERE c.user_id = (SELECT u.id FROM users u WHERE u.email = ?) AND c.skill_id = ? "
+    + "GROUP BY c.simulation_id) ch ON ch.simulation_id = s.id "
+    + "WHERE sk.id = ? GROUP BY sk.id, sk.is_hidden, sk.is_admin_hidden";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Moves on a change of the hearts or the finished flag of the chat and on every new or changed message of it
+   */
+  public Optional<String> chatVersion(final Long chatId) {
+    return queryForVersion(CHAT_VERSION_BY_ID, chatId);
+  }
+
+  /**
+   * The version of the latest chat of the user on the simulation having messages, empty when there is none
+   */
+  public Optional<String> latestChatVersion(final String email, final Long simulationId) {
+    return queryForVersion(LATEST_CHAT_VERSION, email, simulationId);
+  }
+
+  public Optional<String> availableSkillsVersion(final String email) {
+    return queryForVersion(AVAILABLE_SKILLS_VERSION, email);
+  }
+
+  /**
+   * Covers the simulations of the skill with their order and the chats of the user on them
+   */
+  public Optional<String> skillSimulationsVersion(final String email, final Long skillId) {
+    return queryForVersion(SKILL_SIMULATIONS_VERSION, email, skillId, skillId);
+  }
+
+  private Optional<String> queryForVersion(final String sql, final Object... args) {
+    return jdbcTemplate.queryForList(sql, String.class, args).stream()
+      .filter(Objects::nonNull)
+      .findFirst();
+  }
+
+}
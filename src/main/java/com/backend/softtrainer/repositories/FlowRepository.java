@@ -21,6 +21,12 @@ public interface FlowRepository extends JpaRepository<FlowNode, Long> {
   List<FlowNode> findAllBySimulationIdAndPreviousOrderNumber(@Param("simulationId") final Long simulationId, @Param(
     "previousOrderNumber") final long previousOrderNumber);
 
+  @Query("SELECT f FROM nodes f LEFT JOIN FETCH f.character WHERE f.simulation.id = :simulationId")
+  List<FlowNode> findAllBySimulationIdWithCharacters(@Param("simulationId") final Long simulationId);
+
+  @Query("SELECT f.id FROM nodes f WHERE f.simulation.id = :simulationId")
+  List<Long> findIdsBySimulationId(@Param("simulationId") final Long simulationId);
+
 //  List<FlowNode> findAllByOrderNumber(@Param("orderNumber") final long orderNumber);
 
   Optional<FlowNode> findTopBySimulationOrderByOrderNumberDesc(@Param("simulation") final Simulation simulation);
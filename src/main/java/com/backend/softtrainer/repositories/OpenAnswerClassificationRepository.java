@@ -0,0 +1,33 @@
+package com.backend.softtrainer.repositories;
+
+import com.backend.softtrainer.entities.OpenAnswerClassification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface OpenAnswerClassificationRepository extends JpaRepository<OpenAnswerClassification, Long> {
+
+  Optional<OpenAnswerClassification> findByFlowNodeIdAndOptionsHashAndAnswerHash(@Param("flowNodeId") final Long flowNodeId,
+                                                                                 @Param("optionsHash") final String optionsHash,
+                                                                                 @Param("answerHash") final String answerHash);
+
+  @Modifying
+  @Transactional
+  @Query(value = "INSERT INTO open_answer_classification "
+    + "(flow_node_id, options_hash, answer_hash, normalized_answer, prompt_id, response, created_at) "
+    + "VALUES (:flowNodeId, :optionsHash, :answerHash, :normalizedAnswer, :promptId, :response, NOW()) "
+    + "ON CONFLICT (flow_node_id, options_hash, answer_hash) "
+    + "DO UPDATE SET prompt_id = EXCLUDED.prompt_id, response = EXCLUDED.response, created_at = EXCLUDED.created_at",
+    nativeQuery = true)
+  void upsert(@Param("flowNodeId") final Long flowNodeId,
+              @Param("optionsHash") final String optionsHash,
+              @Param("answerHash") final String answerHash,
+              @Param("normalizedAnswer") final String normalizedAnswer,
+              @Param("promptId") final Long promptId,
+              @Param("response") final String response);
+
+}
@@ -0,0 +1,143 @@
+package com.backend.softtrainer.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Pending AI generated content (hints, simulation results) keyed by message id.
+ * The generation completes the entry once the content is stored, the request waiting for the message just subscribes
+ * to it instead of polling the db.
+ * Entries of abandoned chats are dropped by size and ttl, a request coming later reads the content from the db.
+ * The registry only sees the content generated by this node, a waiting request re-reads the db on a slow schedule to
+ * pick up the content stored by another node, before a restart or after its entry was dropped.
+ */
+@Slf4j
+@Component
+public class AiMessageCompletionRegistry {
+
+  private final Cache<String, CompletableFuture<String>> pending;
+
+  private final ScheduledExecutorService recheck = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    var thread = new Thread(runnable, "ai-message-recheck");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Duration retention;
+
+  private final Duration recheckInterval;
+
+  @Autowired
+  public AiMessageCompletionRegistry(@Value("${app.ai-message.retention:10m}") final Duration retention,
+                                     @Value("${app.ai-message.max-entries:10000}") final long maxEntries,
+                                     @Value("${app.ai-message.recheck-interval:2s}") final Duration recheckInterval) {
+    this(retention, maxEntries, recheckInterval, Ticker.systemTicker());
+  }
+
+  AiMessageCompletionRegistry(final Duration retention,
+                              final long maxEntries,
+                              final Duration recheckInterval,
+                              final Ticker ticker) {
+    this.retention = retention;
+    this.recheckInterval = recheckInterval;
+    this.pending = Caffeine.newBuilder()
+      .maximumSize(maxEntries)
+      .expireAfterWrite(retention)
+      .ticker(ticker)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * @return content of the message; every caller gets its own copy, so a caller giving up doesn't affect the others
+   */
+  public CompletableFuture<String> await(final String messageId) {
+    return pendingContent(messageId).copy();
+  }
+
+  /**
+   * Same as {@link #await(String)}, the content is also taken from the db once it is there.
+   * The re-check stops with the wait, at the latest after the retention of the entry.
+   *
+   * @param storedContent reads the content of the message from the db, empty while it isn't generated
+   */
+  public CompletableFuture<String> await(final String messageId, final Supplier<Optional<String>> storedContent) {
+    var content = await(messageId);
+    var deadline = System.nanoTime() + retention.toNanos();
+    var task = recheck.scheduleWithFixedDelay(() -> {
+      if (System.nanoTime() - deadline >= 0) {
+        content.cancel(false);
+        return;
+      }
+      try {
+        storedContent.get().ifPresent(stored -> {
+          log.info("The content of the message {} is found in the db", messageId);
+          complete(messageId, stored);
+          content.complete(stored);
+        });
+      } catch (Exception e) {
+        log.warn("Failed to re-read the content of the message {}", messageId, e);
+      }
+    }, recheckInterval.toMillis(), recheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    content.whenComplete((stored, e) -> task.cancel(false));
+    return content;
+  }
+
+  public void complete(final String messageId, final String content) {
+    log.info("The content of the message {} is ready", messageId);
+    pendingContent(messageId).complete(content);
+  }
+
+  /**
+   * Completes the message once the current transaction is committed, so the waiting request never sees content
+   * which isn't in the db yet.
+   */
+  public void completeAfterCommit(final String messageId, final String content) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      complete(messageId, content);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        complete(messageId, content);
+      }
+    });
+  }
+
+  public long size() {
+    pending.cleanUp();
+    return pending.estimatedSize();
+  }
+
+  public CacheStats stats() {
+    return pending.stats();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    recheck.shutdownNow();
+  }
+
+  private CompletableFuture<String> pendingContent(final String messageId) {
+    return pending.get(messageId, id -> new CompletableFuture<>());
+  }
+
+}
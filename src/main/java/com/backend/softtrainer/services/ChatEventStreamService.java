@@ -0,0 +1,110 @@
+package com.backend.softtrainer.services;
+
+import com.backend.softtrainer.dtos.ChatParams;
+import com.backend.softtrainer.dtos.MessageContentDeltaDto;
+import com.backend.softtrainer.events.ChatHeartsUpdatedEvent;
+import com.backend.softtrainer.events.ChatMessageContentDeltaEvent;
+import com.backend.softtrainer.events.ChatMessageUpdatedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Server-sent events of the open chats. Generated hint and result messages and hearts changes are pushed to the
+ * subscribers of the chat right after they are stored, so clients don't have to poll /message/get.
+ * While the ai content is generated its parts are pushed as "message-delta" events.
+ */
+@Slf4j
+@Service
+public class ChatEventStreamService {
+
+  private static final String MESSAGE_EVENT = "message";
+
+  private static final String MESSAGE_DELTA_EVENT = "message-delta";
+
+  private static final String HEARTS_EVENT = "hearts";
+
+  private final Map<Long, List<SseEmitter>> emittersByChatId = new ConcurrentHashMap<>();
+
+  private final UserMessageService userMessageService;
+
+  private final Duration emitterTimeout;
+
+  public ChatEventStreamService(final UserMessageService userMessageService,
+                                @Value("${app.chat-events.timeout:30m}") final Duration emitterTimeout) {
+    this.userMessageService = userMessageService;
+    this.emitterTimeout = emitterTimeout;
+  }
+
+  public SseEmitter subscribe(final Long chatId) {
+    var emitter = new SseEmitter(emitterTimeout.toMillis());
+    emittersByChatId.compute(chatId, (id, emitters) -> {
+      var chatEmitters = emitters == null ? new CopyOnWriteArrayList<SseEmitter>() : emitters;
+      chatEmitters.add(emitter);
+      return chatEmitters;
+    });
+
+    emitter.onCompletion(() -> remove(chatId, emitter));
+    emitter.onTimeout(() -> remove(chatId, emitter));
+    emitter.onError(e -> remove(chatId, emitter));
+
+    log.info("Subscribed to the events of the chat {}", chatId);
+    return emitter;
+  }
+
+  public int subscribers(final Long chatId) {
+    return emittersByChatId.getOrDefault(chatId, List.of()).size();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onMessageUpdated(final ChatMessageUpdatedEvent event) {
+    if (subscribers(event.getChatId()) == 0) {
+      return;
+    }
+    userMessageService.convert(event.getMessage(), null)
+      .forEach(messageDto -> send(event.getChatId(), MESSAGE_EVENT, messageDto));
+  }
+
+  @EventListener
+  public void onMessageContentDelta(final ChatMessageContentDeltaEvent event) {
+    send(event.getChatId(), MESSAGE_DELTA_EVENT, new MessageContentDeltaDto(event.getMessageId(), event.getDelta()));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onHeartsUpdated(final ChatHeartsUpdatedEvent event) {
+    send(event.getChatId(), HEARTS_EVENT, new ChatParams(event.getHearts()));
+  }
+
+  private void send(final Long chatId, final String name, final Object data) {
+    var emitters = emittersByChatId.get(chatId);
+    if (emitters == null) {
+      return;
+    }
+    for (SseEmitter emitter : emitters) {
+      try {
+        emitter.send(SseEmitter.event().name(name).data(data));
+      } catch (IOException | IllegalStateException e) {
+        log.info("The subscriber of the chat {} is gone: {}", chatId, e.getMessage());
+        remove(chatId, emitter);
+      }
+    }
+  }
+
+  private void remove(final Long chatId, final SseEmitter emitter) {
+    emittersByChatId.computeIfPresent(chatId, (id, emitters) -> {
+      emitters.remove(emitter);
+      return emitters.isEmpty() ? null : emitters;
+    });
+  }
+
+}
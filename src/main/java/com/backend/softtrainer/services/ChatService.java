@@ -3,20 +3,34 @@ package com.backend.softtrainer.services;
 import com.backend.softtrainer.entities.Chat;
 import com.backend.softtrainer.entities.Simulation;
 import com.backend.softtrainer.entities.User;
+import com.backend.softtrainer.entities.messages.Message;
+import com.backend.softtrainer.repositories.ChatHistoryRepository;
 import com.backend.softtrainer.repositories.ChatRepository;
 import com.backend.softtrainer.utils.Converter;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 @AllArgsConstructor
 public class ChatService {
 
+  /**
+   * A change is stamped before its transaction commits, so a change committed just after the client loaded the chat
+   * may be stamped before the cursor. The messages of the overlap are sent again, clients merge the messages by id.
+   */
+  private static final Duration CURSOR_OVERLAP = Duration.ofSeconds(5);
+
   private final ChatRepository chatRepository;
 
+  private final ChatHistoryRepository chatHistoryRepository;
+
   public Chat store(final Simulation simulation, final User user) {
     var chat = Converter.convert(simulation, user);
     return chatRepository.save(chat);
@@ -26,17 +40,47 @@ public class ChatService {
     return chatRepository.existsByUserAndSimulationId(user, simulationId);
   }
 
-  public Optional<Chat> findChatWithMessages(final User user, final Long simulationId) {
-    var chats = chatRepository.findByUserAndSimulationNameWithMessages(user, simulationId);
-    var sorted = chats.stream().sorted(Comparator.comparing(Chat::getTimestamp)).toList();
-    if (sorted.isEmpty()) {
-      return Optional.empty();
-    }
-    return Optional.ofNullable(sorted.get(sorted.size() - 1));
-  }
-
   public Optional<Chat> findChatWithMessages(final Long chatId) {
     return chatRepository.findByIdWithMessages(chatId);
   }
 
+  public Optional<Chat> findChat(final Long chatId) {
+    return chatRepository.findById(chatId);
+  }
+
+  /**
+   * The latest chat of the user on the simulation having messages, picked in the db, a newer chat without messages
+   * doesn't hide it. The messages aren't loaded, they are read with {@link #findMessages}.
+   */
+  public Optional<Chat> findLatestChat(final User user, final Long simulationId) {
+    return chatRepository.findLatestChatIdWithMessages(user, simulationId).flatMap(chatRepository::findById);
+  }
+
+  /**
+   * Messages of the chat to render, read without the entity graph of the chat
+   *
+   * @param since cursor of a previous load to read only the messages created or changed after it, null for all
+   */
+  public List<Message> findMessages(final Long chatId, final LocalDateTime since) {
+    var rows = since == null
+      ? chatHistoryRepository.findMessages(chatId)
+      : chatHistoryRepository.findChangedSince(chatId, since.minus(CURSOR_OVERLAP));
+    return rows.stream()
+      .map(ChatHistoryRepository.MessageRow::toMessage)
+      .filter(Objects::nonNull)
+      .toList();
+  }
+
+  /**
+   * @return the cursor for the next incremental load: the latest change among the messages, or the previous cursor
+   */
+  public static LocalDateTime cursor(final List<Message> messages, final LocalDateTime since) {
+    return messages.stream()
+      .map(message -> message.getUpdatedAt() != null ? message.getUpdatedAt() : message.getTimestamp())
+      .filter(Objects::nonNull)
+      .max(Comparator.naturalOrder())
+      .filter(latest -> since == null || latest.isAfter(since))
+      .orElse(since);
+  }
+
 }
@@ -27,13 +27,17 @@ import com.backend.softtrainer.entities.flow.ResultSimulationNode;
 import com.backend.softtrainer.entities.flow.SingleChoiceQuestion;
 import com.backend.softtrainer.entities.flow.SingleChoiceTask;
 import com.backend.softtrainer.entities.flow.Text;
+import com.backend.softtrainer.interpreter.ConditionScriptPredicateCache;
 import com.backend.softtrainer.repositories.CharacterRepository;
 import com.backend.softtrainer.repositories.FlowRepository;
 import com.backend.softtrainer.repositories.HyperParameterRepository;
 import com.backend.softtrainer.repositories.OrganizationRepository;
 import com.backend.softtrainer.repositories.SimulationRepository;
 import com.backend.softtrainer.repositories.SkillRepository;
+import com.backend.softtrainer.services.flow.CompiledSimulationGraph;
+import com.backend.softtrainer.services.flow.CompiledSimulationGraphCache;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -48,6 +52,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class FlowService {
 
@@ -63,6 +68,10 @@ public class FlowService {
 
   private final SimulationRepository simulationRepository;
 
+  private final CompiledSimulationGraphCache compiledGraphs;
+
+  private final ConditionScriptPredicateCache predicateCache;
+
   public void uploadFlow(final SimulationRequestDto flowRequestDto) {
     var skillReq = flowRequestDto.getSkill();
     Skill temp = null;
@@ -135,6 +144,10 @@ public class FlowService {
       if (Objects.isNull(temp.getSimulations())) {
         temp.setSimulations(new HashMap<>());
       }
+      // a re-upload adds a new simulation, the graph and the predicates of the one it replaces aren't needed for the new chats
+      temp.getSimulations().keySet().stream()
+        .filter(previous -> Objects.equals(previous.getName(), simulation.getName()))
+        .forEach(previous -> evictCompiledFlow(previous.getId()));
       temp.getSimulations().put(simulation, temp.getSimulations().keySet().size() + 1L);
       temp = skillRepository.save(temp);
     }
@@ -145,13 +158,21 @@ public class FlowService {
     simulationRepository.save(simulation);
   }
 
+  public CompiledSimulationGraph getCompiledGraph(final Long simulationId) {
+    return compiledGraphs.get(simulationId);
+  }
+
+  public void evictCompiledFlow(final Long simulationId) {
+    compiledGraphs.evict(simulationId);
+    predicateCache.evict(flowRepository.findIdsBySimulationId(simulationId));
+  }
+
   public Optional<FlowNode> findById(final Long simulationId) {
     return flowRepository.findById(simulationId);
   }
 
   public boolean isLastNode(final FlowNode flowNode) {
-    return flowRepository.findAllBySimulationIdAndPreviousOrderNumber(flowNode.getSimulation().getId(), flowNode.getOrderNumber())
-      .isEmpty();
+    return getCompiledGraph(flowNode.getSimulation().getId()).isLastNode(flowNode.getOrderNumber());
   }
 
   private Stream<FlowNode> convert(final FlowNodeDto flowRecordDto,
@@ -313,7 +334,11 @@ public class FlowService {
   }
 
   public List<FlowNode> findAllBySimulationIdAndPreviousOrderNumber(final Long simulationId, final long previousOrderNumber) {
-    return flowRepository.findAllBySimulationIdAndPreviousOrderNumber(simulationId, previousOrderNumber);
+    return getCompiledGraph(simulationId).findAllByPreviousOrderNumber(previousOrderNumber);
+  }
+
+  public Optional<FlowNode> findFollowingHintNode(final Long simulationId, final long orderNumber) {
+    return getCompiledGraph(simulationId).findFollowingHintNode(orderNumber);
   }
 
 }
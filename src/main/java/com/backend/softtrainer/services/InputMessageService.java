@@ -34,35 +34,36 @@ import com.backend.softtrainer.entities.messages.MultiChoiceTaskQuestionMessage;
 import com.backend.softtrainer.entities.messages.SingleChoiceQuestionMessage;
 import com.backend.softtrainer.entities.messages.SingleChoiceTaskQuestionMessage;
 import com.backend.softtrainer.entities.messages.TextMessage;
+import com.backend.softtrainer.events.ChatMessageContentDeltaEvent;
 import com.backend.softtrainer.exceptions.SendMessageConditionException;
+import com.backend.softtrainer.interpreter.ChatMessageSnapshot;
+import com.backend.softtrainer.interpreter.ConditionScriptEnginePool;
+import com.backend.softtrainer.interpreter.ConditionScriptPredicateCache;
 import com.backend.softtrainer.interpreter.InterpreterMessageMapper;
 import com.backend.softtrainer.repositories.ChatRepository;
 import com.backend.softtrainer.repositories.MessageRepository;
-import com.backend.softtrainer.repositories.PromptRepository;
 import com.backend.softtrainer.services.chatgpt.ChatGptService;
 import com.backend.softtrainer.utils.Converter;
 import com.oruel.conditionscript.libs.MessageManagerLib;
-import com.oruel.conditionscript.script.ConditionScriptRunnerKt;
-import com.oruel.scriptforge.Runner;
-import jakarta.persistence.OptimisticLockException;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONObject;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -73,10 +74,11 @@ public class InputMessageService {
   private final ChatRepository chatRepository;
   private final FlowService flowService;
   private final UserHyperParameterService userHyperParameterService;
-  private final Runner conditionScriptRunner = ConditionScriptRunnerKt.ConditionScriptRunner();
+  private final ConditionScriptPredicateCache conditionScriptPredicateCache;
+  private final ConditionScriptEnginePool conditionScriptEnginePool;
 
   private final ChatGptService chatGptService;
-  private final PromptRepository promptRepository;
+  private final PromptRegistry promptRegistry;
 
   private final UserDataExtractor userDataExtractor;
 
@@ -84,11 +86,16 @@ public class InputMessageService {
 
   private final InterpreterMessageMapper interpreterMessageMapper = new InterpreterMessageMapper();
 
-  private final Map<String, String> HINT_CACHE = new ConcurrentHashMap<>();
+  private final AiMessageCompletionRegistry aiMessageCompletionRegistry;
+
+  private final OpenAnswerClassificationCache openAnswerClassificationCache;
+
+  private final OpenAnswerMatcher openAnswerMatcher;
 
-  private final Map<String, String> RESULT_SIMULATION_CACHE = new ConcurrentHashMap<>();
   private final MessageRepository messageRepository;
 
+  private final ApplicationEventPublisher eventPublisher;
+
   public CompletableFuture<ChatDataDto> buildResponse(final MessageRequestDto messageRequestDto) throws
                                                                                                  SendMessageConditionException {
     var chatOpt = chatRepository.findByIdWithMessages(messageRequestDto.getChatId());
@@ -120,13 +127,22 @@ public class InputMessageService {
     );
     verifyUserAnswer(message, messageRequestDto);
 
-    return findOutTheListOfMessagesBasedOnUserActionableMessage(messageRequestDto, chat, allMessagesByChat, message);
+    var messageSnapshot = ChatMessageSnapshot.of(chat.getId(), allMessagesByChat);
+
+    return findOutTheListOfMessagesBasedOnUserActionableMessage(
+      messageRequestDto,
+      chat,
+      allMessagesByChat,
+      message,
+      messageSnapshot
+    );
   }
 
   private @NotNull CompletableFuture<ChatDataDto> findOutTheListOfMessagesBasedOnUserActionableMessage(final MessageRequestDto messageRequestDto,
                                                                                                        final Chat chat,
                                                                                                        final List<Message> alreadyStoredMessages,
-                                                                                                       Message currentMessage) throws
+                                                                                                       Message currentMessage,
+                                                                                                       final ChatMessageSnapshot messageSnapshot) throws
                                                                                                                                SendMessageConditionException {
     var alreadyStoredMessagesAfterCurrent = getMessagesAfter(alreadyStoredMessages, currentMessage);
 
@@ -142,7 +158,8 @@ public class InputMessageService {
       var nextMessages = figureOutNextMessagesWith(
         chat,
         currentMessage.getFlowNode(),
-        alreadyStoredMessagesAfterCurrent
+        alreadyStoredMessagesAfterCurrent,
+        messageSnapshot
       );
 
       whetherItStartsGenerationHint(alreadyStoredMessagesAfterCurrent, currentMsg, chat);
@@ -160,7 +177,8 @@ public class InputMessageService {
       var nextMessages = figureOutNextMessagesWith(
         chat,
         currentMessage.getFlowNode(),
-        alreadyStoredMessagesAfterCurrent
+        alreadyStoredMessagesAfterCurrent,
+        messageSnapshot
       );
 
       whetherItStartsGenerationHint(alreadyStoredMessagesAfterCurrent, currentMessage, chat);
@@ -178,7 +196,8 @@ public class InputMessageService {
       var nextMessages = figureOutNextMessagesWith(
         chat,
         currentMessage.getFlowNode(),
-        alreadyStoredMessagesAfterCurrent
+        alreadyStoredMessagesAfterCurrent,
+        messageSnapshot
       );
 
       whetherItStartsGenerationHint(alreadyStoredMessagesAfterCurrent, currentMsg, chat);
@@ -211,7 +230,8 @@ public class InputMessageService {
       var nextMessages = figureOutNextMessagesWith(
         chat,
         currentMessage.getFlowNode(),
-        alreadyStoredMessagesAfterCurrent
+        alreadyStoredMessagesAfterCurrent,
+        messageSnapshot
       );
 
 
@@ -231,92 +251,58 @@ public class InputMessageService {
 
       resultMessage.setHyperParams(params);
 
-      if (Objects.isNull(resultMessage.getContent()) || resultMessage.getContent().isBlank()) {
-        waitForAiMsg(resultMessage);
-      }
-
-      log.info("The result message looks like {}", resultMessage);
-      return CompletableFuture.completedFuture(new ChatDataDto(List.of(resultMessage), new ChatParams(null)));
+      return thenApplyCancellable(awaitAiContent(resultMessage), msg -> {
+        log.info("The result message looks like {}", msg);
+        return new ChatDataDto(List.of(msg), new ChatParams(null));
+      });
     } else if (messageRequestDto instanceof HintMessageDto hintMessageDto) {
 
-      waitForAiMsg(currentMessage);
-      log.info("The hint message looks like {}", currentMessage);
-      return CompletableFuture.completedFuture(new ChatDataDto(List.of(currentMessage), new ChatParams(null)));
+      return thenApplyCancellable(awaitAiContent(currentMessage), msg -> {
+        log.info("The hint message looks like {}", msg);
+        return new ChatDataDto(List.of(msg), new ChatParams(null));
+      });
     } else {
       throw new SendMessageConditionException(
         "Send message has incorrect message type. It should be one of the actionable message type");
     }
   }
 
-  public void waitForAiMsg(Message currentMessage) {
-    final int maxRetries = 10;
-    final long delay = 1000;
-
-    for (int attempt = 0; attempt < maxRetries; attempt++) {
-      try {
-        if (Objects.nonNull(currentMessage)) {
-          String content = getContent(currentMessage);
-
-          if (currentMessage.getMessageType().equals(MessageType.HINT_MESSAGE)) {
-            if (HINT_CACHE.containsKey(currentMessage.getId())) {
-              var m = (HintMessage) currentMessage;
-              m.setContent(HINT_CACHE.get(currentMessage.getId()));
-
-              log.info("Message content of hint is already present in the cache: {}", m.getContent());
-              HINT_CACHE.remove(currentMessage.getId());
-              return;
-            }
-          } else if (currentMessage.getMessageType().equals(MessageType.RESULT_SIMULATION)) {
-            if (RESULT_SIMULATION_CACHE.containsKey(currentMessage.getId())) {
-              var m = (LastSimulationMessage) currentMessage;
-              m.setContent(RESULT_SIMULATION_CACHE.get(currentMessage.getId()));
-
-              log.info("Message content of result simulation is already present in the cache: {}", m.getContent());
-              RESULT_SIMULATION_CACHE.remove(currentMessage.getId());
-              return;
-            }
-          }
-
-          if ((Objects.nonNull(content) && !content.isBlank())) {
-            log.info("Message content is already present in the db: {}, version {}", content, currentMessage.getVersion());
-            return;
-          }
-
-          log.info(
-            "In time of request message {}, the content value {} is blank and version {}",
-            currentMessage.getId(),
-            content,
-            currentMessage.getVersion()
-          );
-
-          Thread.sleep(delay);
-          currentMessage = messageService.findMessageById(currentMessage.getId()).orElse(null);
+  /**
+   * Completes once the ai content of the hint or result message is stored, without holding the request thread.
+   * The caller decides how long to wait for it, cancelling the returned future stops the wait and the re-reads of the
+   * db. Content stored by another node is picked up from the db.
+   */
+  public CompletableFuture<Message> awaitAiContent(final Message message) {
+    var content = getContent(message);
+    if (Objects.nonNull(content) && !content.isBlank()) {
+      log.info("Message content is already present in the db: {}, version {}", content, message.getVersion());
+      return CompletableFuture.completedFuture(message);
+    }
 
-          if (Objects.isNull(currentMessage)) {
-            return;
-          }
+    log.info("The content of the message {} is not generated yet, waiting for it", message.getId());
+    var generated = aiMessageCompletionRegistry.await(message.getId(), () -> messageRepository.findById(message.getId())
+      .map(this::getContent)
+      .filter(stored -> !stored.isBlank()));
+    return thenApplyCancellable(generated, generatedContent -> {
+      setContent(message, generatedContent);
+      log.info("Message content is generated for the message {}: {}", message.getId(), generatedContent);
+      return message;
+    });
+  }
 
-          log.info("After retry: {}, version {}", currentMessage, currentMessage.getVersion());
-        }
-      } catch (InterruptedException e) {
-        log.error("Thread was interrupted", e);
-        Thread.currentThread().interrupt();
-        return;
-      } catch (OptimisticLockException e) {
-        log.info("Optimistic lock exception for message {}. Retrying... {}/{}", currentMessage.getId(), attempt + 1, maxRetries);
-        try {
-          Thread.sleep(delay);
-        } catch (InterruptedException ie) {
-          log.error("Thread was interrupted during retry sleep", ie);
-          Thread.currentThread().interrupt();
-          return;
-        }
-      } catch (Exception e) {
-        log.error("Error while getting hint message while waiting ", e);
-        return;
+  /**
+   * thenApply which passes a cancel of the returned stage on to the source, a plain stage doesn't cancel what it
+   * depends on
+   */
+  private static <T, R> CompletableFuture<R> thenApplyCancellable(final CompletableFuture<T> source,
+                                                                  final Function<T, R> mapping) {
+    var mapped = source.thenApply(mapping);
+    mapped.whenComplete((result, e) -> {
+      if (mapped.isCancelled()) {
+        source.cancel(false);
       }
-    }
-    log.error("Maximum retry attempts reached for message {}", currentMessage.getId());
+    });
+    return mapped;
   }
 
   private String getContent(Message message) {
@@ -329,6 +315,14 @@ public class InputMessageService {
     }
   }
 
+  private void setContent(final Message message, final String content) {
+    if (message instanceof LastSimulationMessage lastSimulationMessage) {
+      lastSimulationMessage.setContent(content);
+    } else if (message instanceof HintMessage hintMessage) {
+      hintMessage.setContent(content);
+    }
+  }
+
   public static List<Message> getMessagesAfter(List<Message> messages, Message referenceMessage) {
     int index = messages.indexOf(referenceMessage);
     if (index == -1) {
@@ -374,7 +368,7 @@ public class InputMessageService {
         .flowNode(nextHintNode.get())
         .character(nextHintNode.get().getCharacter())
         .role(ChatRole.APP)
-        .timestamp(LocalDateTime.now())
+        .timestamp(Message.nextTimestamp())
         .build();
 
       messageService.save(hintMessage);
@@ -409,39 +403,40 @@ public class InputMessageService {
   }
 
   private @NotNull Optional<FlowNode> getFollowingHintNode(final FlowNode actionableFlowNode) {
-    var hintNodes = flowService.findAllBySimulationIdAndPreviousOrderNumber(
+    return flowService.findFollowingHintNode(
       actionableFlowNode.getSimulation().getId(),
       actionableFlowNode.getOrderNumber()
     );
-    return hintNodes.stream()
-      .filter(node -> node.getMessageType().equals(MessageType.HINT_MESSAGE))
-      .findFirst();
   }
 
   @NotNull
   private CompletableFuture<ChatDataDto> figureOutNextMessagesWith(Chat chat,
                                                                    final FlowNode flowNode,
-                                                                   final List<Message> alreadyStoredMessages) throws
+                                                                   final List<Message> alreadyStoredMessages,
+                                                                   final ChatMessageSnapshot messageSnapshot) throws
                                                                                                               SendMessageConditionException {
 
     Long previousOrderNumber = flowNode.getOrderNumber();
 
     final Long simulationId = chat.getSimulation().getId();
 
-    var nextFlowNodeOptional = getNextFlowNode(chat.getId(), previousOrderNumber, simulationId);
+    var nextFlowNodeOptional = getNextFlowNode(messageSnapshot, previousOrderNumber, simulationId);
 
     if (nextFlowNodeOptional.isPresent()) {
       var nextFlowNode = nextFlowNodeOptional.get();
       var nextMessage = convert(nextFlowNode, chat);
+      var pendingMessages = new ArrayList<Message>();
+      var resultMessages = new ArrayList<Message>();
+      var isFinished = false;
 
       //todo remove it
       if (!nextFlowNode.getMessageType().equals(MessageType.HINT_MESSAGE)) {
-        nextMessage = messageService.save(nextMessage);
+        stage(nextMessage, pendingMessages, messageSnapshot);
         alreadyStoredMessages.add(nextMessage);
       }
 
       while (!MessageType.getActionableMessageTypes().contains(nextFlowNode.getMessageType().name())) {
-        nextFlowNodeOptional = getNextFlowNode(chat.getId(), nextFlowNode.getOrderNumber(), simulationId);
+        nextFlowNodeOptional = getNextFlowNode(messageSnapshot, nextFlowNode.getOrderNumber(), simulationId);
         if (nextFlowNodeOptional.isPresent()) {
           nextFlowNode = nextFlowNodeOptional.get();
 
@@ -449,34 +444,58 @@ public class InputMessageService {
 
           //todo remove it
           if (!nextFlowNode.getMessageType().equals(MessageType.HINT_MESSAGE)) {
-            nextMessage = messageService.save(nextMessage);
+            stage(nextMessage, pendingMessages, messageSnapshot);
           }
 
           //todo temporary
           if (nextMessage.getMessageType().equals(MessageType.RESULT_SIMULATION)) {
-            generateResultSimulationMessage(nextMessage, chat);
-            log.info(
-              "Begin the generation of the content for result message with order number {}",
-              nextFlowNode.getOrderNumber()
-            );
+            resultMessages.add(nextMessage);
           }
           alreadyStoredMessages.add(nextMessage);
           log.info("The orderNumber of current flowNode is {}", nextFlowNode.getOrderNumber());
         } else {
-          chatRepository.updateIsFinished(chat.getId(), true);
-          var chatOptional = chatRepository.findById(chat.getId());
-
-          if (chatOptional.isPresent()) {
-            chat = chatOptional.get();
-          }
-          log.info("The chat with id {} is finished", chat.getId());
+          isFinished = true;
           break;
         }
       }
+
+      log.info("Storing {} next messages for the chat {} in one batch", pendingMessages.size(), chat.getId());
+      messageService.saveAll(pendingMessages);
+
+      for (Message resultMessage : resultMessages) {
+        generateResultSimulationMessage(resultMessage, chat);
+        log.info(
+          "Begin the generation of the content for result message with order number {}",
+          resultMessage.getFlowNode().getOrderNumber()
+        );
+      }
+
+      if (isFinished) {
+        chatRepository.updateIsFinished(chat.getId(), true);
+        var chatOptional = chatRepository.findById(chat.getId());
+
+        if (chatOptional.isPresent()) {
+          chat = chatOptional.get();
+        }
+        log.info("The chat with id {} is finished", chat.getId());
+      }
     }
     return CompletableFuture.completedFuture(new ChatDataDto(alreadyStoredMessages, new ChatParams(chat.getHearts())));
   }
 
+  /**
+   * Queues the message for the batched insert, the predicates of the following nodes already see it in the snapshot.
+   * The converted messages take their timestamps from {@link Message#nextTimestamp()}, so the batch keeps the flow
+   * order.
+   */
+  private void stage(final Message message,
+                     final List<Message> pendingMessages,
+                     final ChatMessageSnapshot messageSnapshot) {
+    message.assignTimestamp();
+    pendingMessages.add(message);
+    messageSnapshot.add(message);
+  }
+
   public void generateHintMessage(final String hintMessageId,
                                   final List<Message> actionableMsgs,
                                   final FlowNode hintNode,
@@ -485,7 +504,7 @@ public class InputMessageService {
     try {
 
       Prompt simulationHintPrompt =
-        promptRepository.findFirstByNameOrderByIdDesc(PromptName.SIMULATION_MESSAGE_HINT)
+        promptRegistry.findActive(PromptName.SIMULATION_MESSAGE_HINT)
           .orElseThrow();
 
       log.info("The prompt for hint message is working {}", simulationHintPrompt.isOn());
@@ -496,7 +515,7 @@ public class InputMessageService {
         var updatedChat = chatRepository.findByIdWithMessages(chat.getId()).orElseThrow();
 
         log.info("Current thread name is {}", Thread.currentThread().getName());
-        generateAiHintAsync(updatedChat, actionableMsgs, null, simulationHintPrompt)
+        generateAiHintAsync(updatedChat, actionableMsgs, null, simulationHintPrompt, hintMessageId)
           .thenAccept(aiRecommendation -> {
             log.info("The hint we got from ai is {}", aiRecommendation.map(MessageDto::content));
             String content = aiRecommendation.map(MessageDto::content)
@@ -506,8 +525,7 @@ public class InputMessageService {
               hintMessageId,
               hintNode,
               chat,
-              content,
-              HINT_CACHE
+              content
             );
             log.info("We are done with updating the hint message at {}", LocalDateTime.now());
           }).get();
@@ -517,8 +535,7 @@ public class InputMessageService {
           hintMessageId,
           hintNode,
           chat,
-          mockContent,
-          HINT_CACHE
+          mockContent
         );
       }
 
@@ -554,8 +571,7 @@ public class InputMessageService {
             title,
             language.equalsIgnoreCase("UA") ?
               "Приємно познайомитися. Йдемо відточувати навички справжнього спілкування!" :
-              "Nice to meet you. Let's go to hone real communication skills!",
-            RESULT_SIMULATION_CACHE
+              "Nice to meet you. Let's go to hone real communication skills!"
           );
           return;
         }
@@ -563,7 +579,7 @@ public class InputMessageService {
         var updatedChat = chatRepository.findByIdWithMessages(chat.getId()).orElseThrow();
 
         Prompt simulationRecommendationPrompt =
-          promptRepository.findFirstByNameOrderByIdDesc(PromptName.SIMULATION_SUMMARY)
+          promptRegistry.findActive(PromptName.SIMULATION_SUMMARY)
             .orElseThrow();
 
         var params = userHyperParameterService.findHyperParamsWithMaxValues(chat.getId())
@@ -575,7 +591,7 @@ public class InputMessageService {
 
 
         if (simulationRecommendationPrompt.isOn()) {
-          var aiRecommendation = generateAiSummary(updatedChat, params, simulationRecommendationPrompt);
+          var aiRecommendation = generateAiSummary(updatedChat, params, simulationRecommendationPrompt, msg.getId());
 
           log.info("The simulation recommendation we got from ai is {}", aiRecommendation.map(MessageDto::content));
           String content = aiRecommendation.map(MessageDto::content)
@@ -587,15 +603,10 @@ public class InputMessageService {
             msg,
             params,
             title,
-            content,
-            RESULT_SIMULATION_CACHE
+            content
           );
 
-          log.info(
-            "We are done with updating the result message at {}, and version {}",
-            LocalDateTime.now(),
-            RESULT_SIMULATION_CACHE.getOrDefault(msg.getId(), "not found")
-          );
+          log.info("We are done with updating the result message at {}", LocalDateTime.now());
         } else {
           messageService.updateResultSimulationMessage(
             msg,
@@ -603,8 +614,7 @@ public class InputMessageService {
             title,
             language.equalsIgnoreCase("UA") ?
               "Радий бачити, що ви продовжуєте практикувати свої soft-skills" :
-              "Glad to see you're continuing to practice your soft-skills!",
-            RESULT_SIMULATION_CACHE
+              "Glad to see you're continuing to practice your soft-skills!"
           );
         }
       } catch (Exception e) {
@@ -614,10 +624,12 @@ public class InputMessageService {
   }
 
   private Optional<FlowNode> getNextFlowNode(
-    final Long chatId,
+    final ChatMessageSnapshot messageSnapshot,
     final Long previousOrderNumber,
     final Long simulationId) throws SendMessageConditionException {
 
+    var chatId = messageSnapshot.getChatId();
+
     List<FlowNode> flowNodes = flowService.findAllBySimulationIdAndPreviousOrderNumber(simulationId, previousOrderNumber);
 
     if (flowNodes.size() == 1) {
@@ -626,18 +638,20 @@ public class InputMessageService {
       log.info("No flow nodes found for chatId: {} and previousOrderNumber: {}", chatId, previousOrderNumber);
       return Optional.empty();
     }
-    return Optional.of(findFirstByPredicate(chatId, flowNodes));
+    return Optional.of(findFirstByPredicate(messageSnapshot, flowNodes));
   }
 
   private @NotNull FlowNode findFirstByPredicate(
-    final Long chatId,
+    final ChatMessageSnapshot messageSnapshot,
     final List<FlowNode> flowNodes
   ) throws SendMessageConditionException {
 
+    var chatId = messageSnapshot.getChatId();
+
     log.info("Trying to find first by predicate in flowNodes {}", flowNodes);
 
     var messageManagerLib = new MessageManagerLib(
-      (Long orderNumber) -> getMessage(chatId, orderNumber),
+      (Long orderNumber) -> getMessage(messageSnapshot, orderNumber),
       (String key) -> userHyperParameterService.getOrCreateUserHyperParameter(chatId, key),
       (String key, Double value) -> userHyperParameterService.update(chatId, key, value)
     );
@@ -647,13 +661,12 @@ public class InputMessageService {
       .stream()
       .filter(
         flowNode -> {
-          conditionScriptRunner.resetLibs();
-          conditionScriptRunner.loadLib(messageManagerLib.getLib());
           var predicate = flowNode.getShowPredicate();
           if (predicate == null || predicate.isEmpty()) {
             return true;
           } else {
-            var res = conditionScriptRunner.runPredicate(predicate);
+            var compiledPredicate = conditionScriptPredicateCache.getOrCompile(flowNode.getId(), predicate);
+            var res = conditionScriptEnginePool.evaluate(compiledPredicate, messageManagerLib.getLib());
             var logString = String.format(
               "runPredicate: %s, flowNodeId: %s, result: %s",
               predicate,
@@ -679,8 +692,14 @@ public class InputMessageService {
   }
 
   @Nullable
-  private com.oruel.conditionscript.Message getMessage(final Long chatId, final Long orderNumber) {
+  com.oruel.conditionscript.Message getMessage(final ChatMessageSnapshot messageSnapshot, final Long orderNumber) {
     log.info("Trying to find message by order number: {}", orderNumber);
+    var snapshotMessage = messageSnapshot.findLatestByOrderNumber(orderNumber);
+    if (snapshotMessage.isPresent()) {
+      return interpreterMessageMapper.map(snapshotMessage.get());
+    }
+    var chatId = messageSnapshot.getChatId();
+    log.info("Message by order number {} is not loaded for the chat {}, looking for it in the db", orderNumber, chatId);
     List<Message> messages = messageService.findQuestionUserMessageByOrderNumber(chatId, orderNumber);
     if (!messages.isEmpty()) {
       log.info("Messages {} found by order number: {}", messages, orderNumber);
@@ -703,7 +722,7 @@ public class InputMessageService {
         .flowNode(flowNode)
         .character(flowNode.getCharacter())
         .role(ChatRole.APP)
-        .timestamp(LocalDateTime.now())
+        .timestamp(Message.nextTimestamp())
         .content(text.getText())
         .build();
     } else if (flowNode instanceof ContentQuestion contentQuestion) {
@@ -716,7 +735,7 @@ public class InputMessageService {
         .character(flowNode.getCharacter())
         .responseTimeLimit(contentQuestion.getResponseTimeLimit())
         .role(ChatRole.APP)
-        .timestamp(LocalDateTime.now())
+        .timestamp(Message.nextTimestamp())
         .content(contentQuestion.getUrl())
         .build();
     } else if (flowNode instanceof SingleChoiceQuestion singleChoiceQuestion) {
@@ -727,7 +746,7 @@ public class InputMessageService {
         .messageType(MessageType.SINGLE_CHOICE_QUESTION)
         .flowNode(flowNode)
         .character(flowNode.getCharacter())
-        .timestamp(LocalDateTime.now())
+        .timestamp(Message.nextTimestamp())
         .hasHint(singleChoiceQuestion.isHasHint())
         .options(singleChoiceQuestion.getOptions())
         .responseTimeLimit(singleChoiceQuestion.getResponseTimeLimit())
@@ -745,7 +764,7 @@ public class InputMessageService {
         .character(flowNode.getCharacter())
         .hasHint(enterTextQuestion.isHasHint())
         .responseTimeLimit(enterTextQuestion.getResponseTimeLimit())
-        .timestamp(LocalDateTime.now())
+        .timestamp(Message.nextTimestamp())
         .content(enterTextQuestion.getPrompt())
         .build();
     } else if (flowNode instanceof SingleChoiceTask singleChoiceTask) {
@@ -756,7 +775,7 @@ public class InputMessageService {
         .messageType(MessageType.SINGLE_CHOICE_QUESTION)
         .flowNode(flowNode)
         .character(flowNode.getCharacter())
-        .timestamp(LocalDateTime.now())
+        .timestamp(Message.nextTimestamp())
         .hasHint(singleChoiceTask.isHasHint())
         .responseTimeLimit(singleChoiceTask.getResponseTimeLimit())
         .options(singleChoiceTask.getOptions())
@@ -771,7 +790,7 @@ public class InputMessageService {
         .character(flowNode.getCharacter())
         .role(ChatRole.APP)
         .responseTimeLimit(multipleChoiceQuestion.getResponseTimeLimit())
-        .timestamp(LocalDateTime.now())
+        .timestamp(Message.nextTimestamp())
         .options(multipleChoiceQuestion.getOptions())
         .hasHint(multipleChoiceQuestion.isHasHint())
         .correct(multipleChoiceQuestion.getCorrect())
@@ -788,7 +807,7 @@ public class InputMessageService {
         .title(title)
         .character(flowNode.getCharacter())
         .role(ChatRole.APP)
-        .timestamp(LocalDateTime.now())
+        .timestamp(Message.nextTimestamp())
         .build();
     } else if (flowNode instanceof ResultSimulationNode resultSimulationNode) {
       return LastSimulationMessage.builder()
@@ -799,7 +818,7 @@ public class InputMessageService {
         .flowNode(flowNode)
         .character(flowNode.getCharacter())
         .role(ChatRole.APP)
-        .timestamp(LocalDateTime.now())
+        .timestamp(Message.nextTimestamp())
         .build();
     }
 
@@ -820,7 +839,7 @@ public class InputMessageService {
                  "Unfortunately, you have exhausted all possible attempts. Try again.")
       .title(language.equalsIgnoreCase("UA") ? "Результат" : "Your result")
       .role(ChatRole.APP)
-      .timestamp(LocalDateTime.now())
+      .timestamp(Message.nextTimestamp())
       .build();
 
     messageRepository.save(lastMessage);
@@ -851,7 +870,8 @@ public class InputMessageService {
   private CompletableFuture<Optional<MessageDto>> generateAiHintAsync(final Chat updatedChat,
                                                                       final List<Message> previousActionableMsg,
                                                                       final List<UserHyperParamResponseDto> params,
-                                                                      final Prompt messageHintPrompt) {
+                                                                      final Prompt messageHintPrompt,
+                                                                      final String hintMessageId) {
     return CompletableFuture.supplyAsync(() -> userDataExtractor.getUserOnboardingData(updatedChat.getUser()))
       .thenCompose(onboardingStr -> {
         try {
@@ -863,7 +883,8 @@ public class InputMessageService {
             null,
             updatedChat.getSkill().getName(),
             onboardingStr,
-            updatedChat.getUser().getOrganization().getLocalization()
+            updatedChat.getUser().getOrganization().getLocalization(),
+            contentDeltaPublisher(updatedChat.getId(), hintMessageId)
           ).thenApply(Optional::ofNullable);
         } catch (Exception e) {
           log.error("Error while generating AI hint", e);
@@ -874,7 +895,8 @@ public class InputMessageService {
 
   private Optional<MessageDto> generateAiSummary(final Chat updatedChat,
                                                  final List<UserHyperParamResponseDto> params,
-                                                 final Prompt simulationSummaryPrompt) {
+                                                 final Prompt simulationSummaryPrompt,
+                                                 final String resultMessageId) {
     try {
       var onboardingExtraction = userDataExtractor.getUserOnboardingData(updatedChat.getUser());
       var summary = chatGptService.buildAfterwardSimulationRecommendation(
@@ -886,7 +908,8 @@ public class InputMessageService {
         )),
         updatedChat.getSkill().getName(),
         onboardingExtraction,
-        updatedChat.getUser().getOrganization().getLocalization()
+        updatedChat.getUser().getOrganization().getLocalization(),
+        contentDeltaPublisher(updatedChat.getId(), resultMessageId)
       ).get();
       log.error("everything is fine {} ", summary.content());
       return Optional.ofNullable(summary);
@@ -896,6 +919,10 @@ public class InputMessageService {
       return Optional.empty();
     }
   }
+  private Consumer<String> contentDeltaPublisher(final Long chatId, final String messageId) {
+    return delta -> eventPublisher.publishEvent(new ChatMessageContentDeltaEvent(chatId, messageId, delta));
+  }
+
 
   /**
    * @param message
@@ -910,7 +937,7 @@ public class InputMessageService {
       + "}";
     try {
       Prompt answerClassifyingPrompt =
-        promptRepository.findFirstByNameOrderByIdDesc(PromptName.OPEN_QUESTION_CLASSIFYING)
+        promptRegistry.findActive(PromptName.OPEN_QUESTION_CLASSIFYING)
           .orElseThrow();
 
       log.info("The prompt for  message is working {}", answerClassifyingPrompt.isOn());
@@ -919,15 +946,32 @@ public class InputMessageService {
 
         log.info("Current thread name is {}", Thread.currentThread().getName());
 
-        String response = chatGptService.classifyUserAnswer(message, answerClassifyingPrompt)
+        var localMatch = openAnswerMatcher.match(message.getOptions(), message.getOpenAnswer());
+        if (localMatch.isPresent()) {
+          return localMatch.get().toClassificationResponse();
+        }
+
+        var classificationKey = Objects.isNull(message.getFlowNode())
+          ? null
+          : OpenAnswerClassificationCache.key(message.getFlowNode().getId(), message.getOptions(), message.getOpenAnswer());
+        if (Objects.nonNull(classificationKey)) {
+          var cachedResponse = openAnswerClassificationCache.find(classificationKey, answerClassifyingPrompt.getId());
+          if (cachedResponse.isPresent()) {
+            return cachedResponse.get();
+          }
+        }
+
+        var classificationResponse = chatGptService.classifyUserAnswer(message, answerClassifyingPrompt)
           .thenApply(Optional::ofNullable)
-          .thenApply(classificationResponse -> {
-            log.info("The classification response we got from ai is {}", classificationResponse.map(MessageDto::content));
-            return classificationResponse.map(MessageDto::content)
-              .orElse(mockContent);
-          }).get();
+          .get()
+          .map(MessageDto::content);
+        log.info("The classification response we got from ai is {}", classificationResponse);
         log.info("We are done with classification of the user answer at {}", LocalDateTime.now());
-        return response;
+
+        if (Objects.nonNull(classificationKey) && classificationResponse.filter(this::isClassification).isPresent()) {
+          openAnswerClassificationCache.put(classificationKey, answerClassifyingPrompt.getId(), classificationResponse.get());
+        }
+        return classificationResponse.orElse(mockContent);
       } else {
         return mockContent;
       }
@@ -937,6 +981,17 @@ public class InputMessageService {
     }
   }
 
+  /**
+   * Failed runs return a placeholder text instead of the classification, they must not be reused
+   */
+  private boolean isClassification(final String response) {
+    try {
+      return new JSONObject(response).has("index");
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
   private String extractFromClassificationResponse(String response, final String[] options) {
     try {
       var json = new JSONObject(response);
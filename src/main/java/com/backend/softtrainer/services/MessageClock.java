@@ -0,0 +1,40 @@
+package com.backend.softtrainer.services;
+
+import com.backend.softtrainer.entities.messages.Message;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Keeps the message timestamps of this node on the database clock, the same one the timestamps of the other nodes
+ * follow, so the history order and the updated-since cursors hold across the cluster.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageClock {
+
+  private static final String DATABASE_NOW = "SELECT localtimestamp";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(
+    fixedRateString = "${app.message-clock.sync-interval-ms:60000}",
+    initialDelayString = "${app.message-clock.sync-interval-ms:60000}"
+  )
+  public void sync() {
+    try {
+      Message.alignClock(jdbcTemplate.queryForObject(DATABASE_NOW, LocalDateTime.class));
+    } catch (Exception e) {
+      log.warn("[MessageClock] Failed to read the database clock, keeping the previous offset", e);
+    }
+  }
+
+}
@@ -8,19 +8,20 @@ import com.backend.softtrainer.entities.flow.FlowNode;
 import com.backend.softtrainer.entities.messages.HintMessage;
 import com.backend.softtrainer.entities.messages.LastSimulationMessage;
 import com.backend.softtrainer.entities.messages.Message;
+import com.backend.softtrainer.events.ChatMessageUpdatedEvent;
 import com.backend.softtrainer.repositories.MessageRepository;
 import jakarta.persistence.CacheStoreMode;
 import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -33,6 +34,10 @@ public class MessageService {
 
   private final EntityManager entityManager;
 
+  private final AiMessageCompletionRegistry aiMessageCompletionRegistry;
+
+  private final ApplicationEventPublisher eventPublisher;
+
   @Transactional(isolation = Isolation.READ_UNCOMMITTED)
   public Optional<Message> findMessageById(final String messageId) {
     //todo how to avoid that stupid request??
@@ -49,8 +54,7 @@ public class MessageService {
   public void updateOrCreateHintMessage(final String hintMessageId,
                                         final FlowNode hintNode,
                                         final Chat chat,
-                                        final String content,
-                                        final Map<String, String> hintCache) {
+                                        final String content) {
 
     HintMessage temp = null;
     var local = chat.getUser().getOrganization().getLocalization();
@@ -83,9 +87,10 @@ public class MessageService {
           .interacted(true)
           .build();
       }
-      hintCache.put(temp.getId(), content);
       log.info("Save or update to store hint message with content: {}", temp);
       temp = entityManager.merge(temp);
+      aiMessageCompletionRegistry.completeAfterCommit(temp.getId(), content);
+      eventPublisher.publishEvent(new ChatMessageUpdatedEvent(chat.getId(), temp));
       log.info("Hint message is stored: {}, at {}, version {}", temp, LocalDateTime.now(), temp.getVersion());
 
     } catch (Exception e) {
@@ -98,12 +103,25 @@ public class MessageService {
     return messageRepository.saveAndFlush(message);
   }
 
+  /**
+   * Stores the messages produced by one user action in a single transaction, so they go to the db as one jdbc batch.
+   * The timestamps follow the order of the list.
+   */
+  @Transactional(isolation = Isolation.READ_UNCOMMITTED)
+  public List<Message> saveAll(final List<Message> messages) {
+    if (messages.isEmpty()) {
+      return messages;
+    }
+    var stored = messageRepository.saveAll(messages);
+    messageRepository.flush();
+    return stored;
+  }
+
   @Transactional(isolation = Isolation.READ_UNCOMMITTED)
   public void updateResultSimulationMessage(final Message msg,
                                             final List<UserHyperParamResponseDto> params,
                                             final String title,
-                                            final String content,
-                                            final Map<String, String> resultCache) {
+                                            final String content) {
     try {
       var lastMsg = (LastSimulationMessage) findMessageById(msg.getId()).orElseThrow();
       lastMsg.setTitle(title);
@@ -114,7 +132,8 @@ public class MessageService {
       lastMsg.setRole(ChatRole.APP);
       entityManager.persist(lastMsg);
 
-      resultCache.put(lastMsg.getId(), content);
+      aiMessageCompletionRegistry.completeAfterCommit(lastMsg.getId(), content);
+      eventPublisher.publishEvent(new ChatMessageUpdatedEvent(lastMsg.getChat().getId(), lastMsg));
     } catch (Exception e) {
       log.error("Error while updating result message: {}", msg, e);
     }
@@ -0,0 +1,132 @@
+package com.backend.softtrainer.services;
+
+import com.backend.softtrainer.repositories.OpenAnswerClassificationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Ai classifications of the open answers keyed by the question node, its options and the normalized answer, so the
+ * same answer to the same question is classified once.
+ * Recent classifications are kept in memory, all of them are stored in the db and survive restarts.
+ * A classification made with another prompt than the active one is a miss and gets replaced.
+ */
+@Slf4j
+@Component
+public class OpenAnswerClassificationCache {
+
+  private final OpenAnswerClassificationRepository classificationRepository;
+
+  private final Cache<Key, Classification> classifications;
+
+  public OpenAnswerClassificationCache(final OpenAnswerClassificationRepository classificationRepository,
+                                       @Value("${app.classification-cache.max-entries:20000}") final long maxEntries) {
+    this.classificationRepository = classificationRepository;
+    this.classifications = Caffeine.newBuilder()
+      .maximumSize(maxEntries)
+      .recordStats()
+      .build();
+  }
+
+  public record Key(Long flowNodeId, String optionsHash, String answerHash, String normalizedAnswer) {
+  }
+
+  record Classification(Long promptId, String response) {
+  }
+
+  public static Key key(final Long flowNodeId, final String options, final String answer) {
+    var normalizedAnswer = normalize(answer);
+    return new Key(flowNodeId, sha256(normalizeOptions(options)), sha256(normalizedAnswer), normalizedAnswer);
+  }
+
+  public Optional<String> find(final Key key, final Long promptId) {
+    var classification = classifications.getIfPresent(key);
+    if (classification == null) {
+      classification = classificationRepository.findByFlowNodeIdAndOptionsHashAndAnswerHash(
+          key.flowNodeId(),
+          key.optionsHash(),
+          key.answerHash()
+        )
+        .map(stored -> new Classification(stored.getPromptId(), stored.getResponse()))
+        .orElse(null);
+      if (classification != null) {
+        classifications.put(key, classification);
+      }
+    }
+
+    if (classification == null || !Objects.equals(classification.promptId(), promptId)) {
+      return Optional.empty();
+    }
+    log.info("[Classification] The answer of the node {} is already classified", key.flowNodeId());
+    return Optional.of(classification.response());
+  }
+
+  public void put(final Key key, final Long promptId, final String response) {
+    classifications.put(key, new Classification(promptId, response));
+    try {
+      classificationRepository.upsert(
+        key.flowNodeId(),
+        key.optionsHash(),
+        key.answerHash(),
+        key.normalizedAnswer(),
+        promptId,
+        response
+      );
+    } catch (Exception e) {
+      log.error("[Classification] Failed to store the classification of the node {}", key.flowNodeId(), e);
+    }
+  }
+
+  public long size() {
+    classifications.cleanUp();
+    return classifications.estimatedSize();
+  }
+
+  public CacheStats stats() {
+    return classifications.stats();
+  }
+
+  /**
+   * Case, punctuation and spacing don't change the meaning of the answer for the classification
+   */
+  static String normalize(final String answer) {
+    if (answer == null) {
+      return "";
+    }
+    return Normalizer.normalize(answer, Normalizer.Form.NFKC)
+      .toLowerCase(Locale.ROOT)
+      .replaceAll("[\\p{P}\\p{S}]+", " ")
+      .replaceAll("\\s+", " ")
+      .trim();
+  }
+
+  private static String normalizeOptions(final String options) {
+    return Arrays.stream(options.split("\\|\\|"))
+      .map(String::trim)
+      .collect(Collectors.joining("\n"));
+  }
+
+  private static String sha256(final String value) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
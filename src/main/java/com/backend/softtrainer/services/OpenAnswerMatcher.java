@@ -0,0 +1,183 @@
+package com.backend.softtrainer.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Matches an open answer to the options of the question without the ai, by the token and character trigram similarity
+ * of the normalized texts. Only an answer clearly closer to one option than to the others is matched, the ambiguous
+ * ones are left to the ai classification. So are the answers saying more than the option or negating it, which can
+ * be as similar as a repeated option: "I would not delegate the task" to "I would delegate the task".
+ */
+@Slf4j
+@Component
+public class OpenAnswerMatcher {
+
+  private static final int CONFIDENCE_BUCKETS = 10;
+
+  /**
+   * Trigram similarity of two words for one to be a typo or another form of the other
+   */
+  private static final double SAME_WORD_SIMILARITY = 0.5;
+
+  /**
+   * Negations after the normalization, "don't" becomes "don t"
+   */
+  private static final Set<String> NEGATIONS = Set.of(
+    "not", "no", "never", "nothing", "nobody", "none", "neither", "nor", "without", "cannot", "t",
+    "dont", "doesnt", "didnt", "isnt", "arent", "wasnt", "werent", "wont", "wouldnt", "cant", "couldnt", "shouldnt"
+  );
+
+  private final double threshold;
+
+  private final double margin;
+
+  private final AtomicLong matched = new AtomicLong();
+
+  private final AtomicLong escalated = new AtomicLong();
+
+  private final AtomicLongArray confidences = new AtomicLongArray(CONFIDENCE_BUCKETS);
+
+  public OpenAnswerMatcher(@Value("${app.classification.local-threshold:0.85}") final double threshold,
+                           @Value("${app.classification.local-margin:0.2}") final double margin) {
+    this.threshold = threshold;
+    this.margin = margin;
+  }
+
+  public record Match(int index, String option, double score) {
+
+    /**
+     * @return the match in the format of the ai classification response
+     */
+    public String toClassificationResponse() {
+      return new JSONObject(Map.of(
+        "index", index,
+        "option", option,
+        "reason", String.format(Locale.ROOT, "Matched locally with the similarity %.2f", score)
+      )).toString();
+    }
+  }
+
+  /**
+   * @param options options of the question separated by ||
+   * @return the option the answer clearly means, empty when the ai has to decide
+   */
+  public Optional<Match> match(final String options, final String answer) {
+    var optionsList = Arrays.stream(options.split("\\|\\|")).map(String::trim).toList();
+    var normalizedAnswer = OpenAnswerClassificationCache.normalize(answer);
+
+    var best = -1;
+    var bestScore = 0.0;
+    var secondScore = 0.0;
+    for (int i = 0; i < optionsList.size(); i++) {
+      var score = similarity(normalizedAnswer, OpenAnswerClassificationCache.normalize(optionsList.get(i)));
+      if (score > bestScore) {
+        secondScore = bestScore;
+        bestScore = score;
+        best = i;
+      } else if (score > secondScore) {
+        secondScore = score;
+      }
+    }
+
+    confidences.incrementAndGet(Math.min((int) (bestScore * CONFIDENCE_BUCKETS), CONFIDENCE_BUCKETS - 1));
+    if (best < 0 || bestScore < threshold || bestScore - secondScore < margin) {
+      escalated.incrementAndGet();
+      log.info("[Classification] The answer is ambiguous for the local match (best: {}, second: {})", bestScore, secondScore);
+      return Optional.empty();
+    }
+    if (!isCoveredBy(normalizedAnswer, OpenAnswerClassificationCache.normalize(optionsList.get(best)))) {
+      escalated.incrementAndGet();
+      log.info("[Classification] The answer is similar to the option {} ({}) but negates it or says more", best, bestScore);
+      return Optional.empty();
+    }
+
+    matched.incrementAndGet();
+    log.info("[Classification] The answer is matched locally to the option {} with the similarity {}", best, bestScore);
+    return Optional.of(new Match(best, optionsList.get(best), bestScore));
+  }
+
+  /**
+   * Matched and escalated answers and the distribution of the best similarity by 0.1 buckets, to tune the threshold
+   */
+  public Map<String, Object> stats() {
+    var matchedCount = matched.get();
+    var total = matchedCount + escalated.get();
+    Map<String, Long> distribution = new LinkedHashMap<>();
+    for (int i = 0; i < CONFIDENCE_BUCKETS; i++) {
+      distribution.put(String.format(Locale.ROOT, "%.1f-%.1f", (double) i / CONFIDENCE_BUCKETS, (double) (i + 1) / CONFIDENCE_BUCKETS),
+                       confidences.get(i));
+    }
+    return Map.of(
+      "matched", matchedCount,
+      "escalated", escalated.get(),
+      "hitRate", total == 0 ? 0.0 : (double) matchedCount / total,
+      "threshold", threshold,
+      "margin", margin,
+      "confidence", distribution
+    );
+  }
+
+  /**
+   * The higher of the token and the character trigram dice coefficients, the first one catches reordered words,
+   * the second one typos and word forms
+   */
+  static double similarity(final String answer, final String option) {
+    if (answer.isEmpty() || option.isEmpty()) {
+      return 0.0;
+    }
+    if (answer.equals(option)) {
+      return 1.0;
+    }
+    var tokens = dice(new HashSet<>(Arrays.asList(answer.split(" "))), new HashSet<>(Arrays.asList(option.split(" "))));
+    var trigrams = dice(trigrams(answer), trigrams(option));
+    return Math.max(tokens, trigrams);
+  }
+
+  /**
+   * Every word of the answer is in the option, typos and word forms aside, and both or neither of them are negated
+   */
+  static boolean isCoveredBy(final String answer, final String option) {
+    var answerWords = new HashSet<>(Arrays.asList(answer.split(" ")));
+    var optionWords = new HashSet<>(Arrays.asList(option.split(" ")));
+    if (isNegated(answerWords) != isNegated(optionWords)) {
+      return false;
+    }
+    return answerWords.stream().allMatch(word -> optionWords.contains(word) || optionWords.stream()
+      .anyMatch(optionWord -> dice(trigrams(word), trigrams(optionWord)) >= SAME_WORD_SIMILARITY));
+  }
+
+  private static boolean isNegated(final Set<String> words) {
+    return words.stream().anyMatch(NEGATIONS::contains);
+  }
+
+  private static double dice(final Set<String> first, final Set<String> second) {
+    if (first.isEmpty() || second.isEmpty()) {
+      return 0.0;
+    }
+    var common = first.stream().filter(second::contains).count();
+    return 2.0 * common / (first.size() + second.size());
+  }
+
+  private static Set<String> trigrams(final String text) {
+    var padded = " " + text + " ";
+    Set<String> trigrams = new HashSet<>();
+    for (int i = 0; i + 3 <= padded.length(); i++) {
+      trigrams.add(padded.substring(i, i + 3));
+    }
+    return trigrams;
+  }
+
+}
@@ -0,0 +1,174 @@
+package com.backend.softtrainer.services;
+
+import com.backend.softtrainer.entities.Prompt;
+import com.backend.softtrainer.entities.PromptName;
+import com.backend.softtrainer.events.PromptChangedEvent;
+import com.backend.softtrainer.events.PromptsRefreshedEvent;
+import com.backend.softtrainer.repositories.PromptRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Active prompt per {@link PromptName} (the one with the highest id), kept in memory so the ai flows don't query the
+ * prompts table per generation.
+ * The registry is reloaded on every prompt change of this node and on the {@value #CHANNEL} notifications sent by the
+ * prompts table trigger, so the other nodes see the change as well.
+ * Every reload publishes a {@link PromptsRefreshedEvent} with the assistants of the active prompts.
+ */
+@Slf4j
+@Component
+public class PromptRegistry {
+
+  static final String CHANNEL = "prompts_changed";
+
+  private static final long LISTEN_TIMEOUT_MS = 10_000;
+
+  private static final long RECONNECT_DELAY_MS = 5_000;
+
+  private final PromptRepository promptRepository;
+
+  private final DataSource dataSource;
+
+  private final boolean listenEnabled;
+
+  private final ApplicationEventPublisher eventPublisher;
+
+  private final AtomicLong version = new AtomicLong();
+
+  private volatile Map<PromptName, Prompt> activePrompts;
+
+  private volatile boolean listening;
+
+  private Thread listenerThread;
+
+  public PromptRegistry(final PromptRepository promptRepository,
+                        final DataSource dataSource,
+                        @Value("${app.prompts.listen-notify.enabled:true}") final boolean listenEnabled,
+                        final ApplicationEventPublisher eventPublisher) {
+    this.promptRepository = promptRepository;
+    this.dataSource = dataSource;
+    this.listenEnabled = listenEnabled;
+    this.eventPublisher = eventPublisher;
+  }
+
+  public Optional<Prompt> findActive(final PromptName name) {
+    var prompts = activePrompts;
+    if (prompts == null) {
+      prompts = refresh("first access");
+    }
+    var prompt = Optional.ofNullable(prompts.get(name));
+    prompt.ifPresent(active -> log.debug("[Prompts] Serving {} (ID: {}) from version {}", name, active.getId(), version.get()));
+    return prompt;
+  }
+
+  /**
+   * @return how many times the prompts were reloaded, logged with every reload to see which prompts served a request
+   */
+  public long version() {
+    return version.get();
+  }
+
+  public Map<PromptName, Long> activePromptIds() {
+    var prompts = activePrompts;
+    if (prompts == null) {
+      return Map.of();
+    }
+    return prompts.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getId()));
+  }
+
+  public synchronized Map<PromptName, Prompt> refresh(final String reason) {
+    Map<PromptName, Prompt> prompts = promptRepository.findAll()
+      .stream()
+      .filter(prompt -> prompt.getName() != null)
+      .collect(Collectors.toMap(
+        Prompt::getName,
+        prompt -> prompt,
+        BinaryOperator.maxBy(Comparator.comparing(Prompt::getId)),
+        () -> new EnumMap<>(PromptName.class)
+      ));
+    activePrompts = prompts;
+    var currentVersion = version.incrementAndGet();
+    log.info("[Prompts] Loaded {} active prompts, version {} ({})", prompts.size(), currentVersion, reason);
+    eventPublisher.publishEvent(new PromptsRefreshedEvent(currentVersion, prompts.values().stream()
+      .map(Prompt::getAssistantId)
+      .filter(Objects::nonNull)
+      .collect(Collectors.toSet())));
+    return prompts;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    refresh("startup");
+    if (!listenEnabled) {
+      return;
+    }
+    listening = true;
+    listenerThread = new Thread(this::listen, "prompt-registry-listener");
+    listenerThread.setDaemon(true);
+    listenerThread.start();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPromptChanged(final PromptChangedEvent event) {
+    refresh(String.format("prompt %s %s is changed", event.getName(), event.getPromptId()));
+  }
+
+  @PreDestroy
+  public void stop() {
+    listening = false;
+    if (listenerThread != null) {
+      listenerThread.interrupt();
+    }
+  }
+
+  /**
+   * Holds one connection of the pool with LISTEN on the channel. After a reconnect the prompts are reloaded,
+   * since notifications sent in between are lost.
+   */
+  private void listen() {
+    while (listening) {
+      try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+        statement.execute("LISTEN " + CHANNEL);
+        var pgConnection = connection.unwrap(PGConnection.class);
+        log.info("[Prompts] Listening to the {} channel", CHANNEL);
+        refresh("listener connected");
+
+        while (listening) {
+          var notifications = pgConnection.getNotifications((int) LISTEN_TIMEOUT_MS);
+          if (notifications != null && notifications.length > 0) {
+            refresh(String.format("%s notifications on %s", notifications.length, CHANNEL));
+          }
+        }
+      } catch (Exception e) {
+        if (!listening) {
+          return;
+        }
+        log.warn("[Prompts] Listening to the {} channel failed, reconnecting: {}", CHANNEL, e.getMessage());
+        try {
+          Thread.sleep(RECONNECT_DELAY_MS);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+}
@@ -28,9 +28,14 @@ import com.backend.softtrainer.entities.messages.MultiChoiceTaskQuestionMessage;
 import com.backend.softtrainer.entities.messages.SingleChoiceQuestionMessage;
 import com.backend.softtrainer.entities.messages.SingleChoiceTaskQuestionMessage;
 import com.backend.softtrainer.entities.messages.TextMessage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -41,23 +46,58 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class UserMessageService {
 
-  private List<MessageAnswerOptionDto> convertOptions(String options, final String answer) {
+  /**
+   * Client messages of the chat history rendered once per stored version of the message and of its character
+   */
+  private final Cache<RenderKey, List<UserMessageDto>> rendered;
+
+  public UserMessageService(@Value("${app.render-cache.max-entries:50000}") final long maxEntries) {
+    this.rendered = Caffeine.newBuilder()
+      .maximumSize(maxEntries)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * The version of the message doesn't move when its character is changed, so the character shown in the dtos is a
+   * part of the key
+   */
+  record RenderKey(String messageId, Integer version, Long flowCharacterId, String characterName, String characterAvatar) {
+
+    static RenderKey of(final Message message) {
+      var character = message.getCharacter();
+      if (Objects.isNull(character)) {
+        return new RenderKey(message.getId(), message.getVersion(), null, null, null);
+      }
+      return new RenderKey(
+        message.getId(),
+        message.getVersion(),
+        character.getFlowCharacterId(),
+        character.getName(),
+        character.getAvatar()
+      );
+    }
+  }
+
+  private List<MessageAnswerOptionDto> convertOptions(final String messageId, String options, final String answer) {
     var answers = Stream.of(answer.split("\\|\\|"))
       .filter(Objects::nonNull)
       .map(String::trim)
       .map(String::toLowerCase)
       .collect(Collectors.toSet());
 
-    return Stream.of(options.split("\\|\\|")).map(option -> {
-        var modifiedOption = option.trim();
+    var optionTexts = options.split("\\|\\|");
+    return IntStream.range(0, optionTexts.length).mapToObj(index -> {
+        var modifiedOption = optionTexts[index].trim();
         var messageBuilder = MessageAnswerOptionDto.builder()
-          .optionId(UUID.randomUUID().toString())
+          .optionId(optionId(messageId, index))
           .text(modifiedOption);
 
         if (answers.contains(modifiedOption.toLowerCase())) {
@@ -69,6 +109,16 @@ public class UserMessageService {
       .toList();
   }
 
+  /**
+   * The same option of a stored message gets the same id on every render
+   */
+  static String optionId(final String messageId, final int index) {
+    if (Objects.isNull(messageId)) {
+      return UUID.randomUUID().toString();
+    }
+    return UUID.nameUUIDFromBytes((messageId + "||" + index).getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
   private CorrectnessState resolveCorrectnessState(HashSet<String> correct,
                                                    HashSet<String> userAnswer) {
     if (correct.equals(userAnswer)) {
@@ -152,11 +202,7 @@ public class UserMessageService {
       .flatMap(msg -> convert(msg, chatParams))
       .filter(Objects::nonNull)
       .filter(msg -> !msg.getMessageType().equals(MessageType.HINT_MESSAGE))
-      .peek(msg -> {
-        if (Objects.nonNull(msg.getCharacter()) && msg.getCharacter().getFlowCharacterId() == -1) {
-          msg.setCharacter(null);
-        }
-      })
+      .peek(this::hideNarrator)
       .sorted(Comparator.comparing(UserMessageDto::getTimestamp))
       .collect(Collectors.toList());
   }
@@ -165,15 +211,67 @@ public class UserMessageService {
     return messages.stream()
       .flatMap(msg -> convert(msg, chatParams))
       .filter(Objects::nonNull)
-      .peek(msg -> {
-        if (Objects.nonNull(msg.getCharacter()) && msg.getCharacter().getFlowCharacterId() == -1) {
-          msg.setCharacter(null);
-        }
-      })
+      .peek(this::hideNarrator)
       .sorted(Comparator.comparing(UserMessageDto::getTimestamp))
       .collect(Collectors.toList());
   }
 
+  /**
+   * Renders the chat history read from the db. A stored message is converted once per its version and character, the
+   * rendered dtos are shared between the reads and must not be changed.
+   */
+  public List<UserMessageDto> combineHistory(final List<Message> messages, final ChatParams chatParams) {
+    return messages.stream()
+      .flatMap(msg -> render(msg, chatParams).stream())
+      .filter(msg -> !msg.getMessageType().equals(MessageType.HINT_MESSAGE))
+      .sorted(Comparator.comparing(UserMessageDto::getTimestamp))
+      .collect(Collectors.toList());
+  }
+
+  public long renderCacheSize() {
+    rendered.cleanUp();
+    return rendered.estimatedSize();
+  }
+
+  public CacheStats renderCacheStats() {
+    return rendered.stats();
+  }
+
+  private List<UserMessageDto> render(final Message message, final ChatParams chatParams) {
+    if (!isRenderCacheable(message)) {
+      return toClientMessages(message, chatParams);
+    }
+    return rendered.get(
+      RenderKey.of(message),
+      key -> toClientMessages(message, chatParams)
+    );
+  }
+
+  private List<UserMessageDto> toClientMessages(final Message message, final ChatParams chatParams) {
+    return convert(message, chatParams)
+      .filter(Objects::nonNull)
+      .peek(this::hideNarrator)
+      .toList();
+  }
+
+  /**
+   * The hints and the result charts are attached to a message at runtime and aren't covered by its version, neither
+   * is a message which isn't stored yet
+   */
+  private static boolean isRenderCacheable(final Message message) {
+    return Objects.nonNull(message)
+      && Objects.nonNull(message.getId())
+      && Objects.nonNull(message.getVersion())
+      && !message.isHasHint()
+      && !(message instanceof LastSimulationMessage);
+  }
+
+  private void hideNarrator(final UserMessageDto msg) {
+    if (Objects.nonNull(msg.getCharacter()) && msg.getCharacter().getFlowCharacterId() == -1) {
+      msg.setCharacter(null);
+    }
+  }
+
   private Double normalizeHyperParams(final Double value, final Double maxValue) {
     var ratio = value / maxValue;
     return 0.15 + 0.85 * (ratio < 0 ? 0 : ratio);
@@ -365,6 +463,7 @@ public class UserMessageService {
         return Stream.of(UserSingleChoiceMessageDto.builder()
                            .answer(singleChoiceQuestionMessage.getAnswer())
                            .options(convertOptions(
+                             singleChoiceQuestionMessage.getId(),
                              singleChoiceQuestionMessage.getOptions(),
                              singleChoiceQuestionMessage.getAnswer()
                            ))
@@ -380,7 +479,11 @@ public class UserMessageService {
                            .build());
       } else {
         return Stream.of(UserSingleChoiceMessageDto.builder()
-                           .options(convertOptions(singleChoiceQuestionMessage.getOptions(), ""))
+                           .options(convertOptions(
+                             singleChoiceQuestionMessage.getId(),
+                             singleChoiceQuestionMessage.getOptions(),
+                             ""
+                           ))
                            .timestamp(singleChoiceQuestionMessage.getTimestamp())
                            .messageType(MessageType.SINGLE_CHOICE_QUESTION)
                            .id(message.getId())
@@ -407,6 +510,7 @@ public class UserMessageService {
 
         return Stream.of(UserSingleChoiceTaskMessageDto.builder()
                            .options(convertOptions(
+                             singleChoiceTaskQuestionMessage.getId(),
                              singleChoiceTaskQuestionMessage.getOptions(),
                              singleChoiceTaskQuestionMessage.getAnswer()
                            ))
@@ -422,7 +526,11 @@ public class UserMessageService {
                            .build());
       } else {
         return Stream.of(UserSingleChoiceTaskMessageDto.builder()
-                           .options(convertOptions(singleChoiceTaskQuestionMessage.getOptions(), ""))
+                           .options(convertOptions(
+                             singleChoiceTaskQuestionMessage.getId(),
+                             singleChoiceTaskQuestionMessage.getOptions(),
+                             ""
+                           ))
                            .timestamp(singleChoiceTaskQuestionMessage.getTimestamp())
                            .id(message.getId())
                            .messageType(MessageType.SINGLE_CHOICE_TASK)
@@ -472,7 +580,11 @@ public class UserMessageService {
         return msgs.stream();
       } else {
         return Stream.of(UserMultiChoiceTaskMessageDto.builder()
-                           .options(convertOptions(multiChoiceTaskQuestionMessage.getOptions(), ""))
+                           .options(convertOptions(
+                             multiChoiceTaskQuestionMessage.getId(),
+                             multiChoiceTaskQuestionMessage.getOptions(),
+                             ""
+                           ))
                            .timestamp(multiChoiceTaskQuestionMessage.getTimestamp())
                            .id(message.getId())
                            .messageType(MessageType.MULTI_CHOICE_TASK)
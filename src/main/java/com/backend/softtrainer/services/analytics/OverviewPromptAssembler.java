@@ -0,0 +1,96 @@
+package com.backend.softtrainer.services.analytics;
+
+import com.backend.softtrainer.services.chatgpt.TokenEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills the overview prompt with the analytics within a token budget in one pass.
+ * Analytics which are not listed as sections are always included, the sections are packed greedily in the order of
+ * their priority: a section which doesn't fit is left out, a list section keeps as many of its items as fit.
+ * The tokens are estimated by {@link TokenEstimator}, never below a token per 4 characters, so a budget under 63k
+ * tokens also keeps the prompt under the 256k characters limit of the assistant instructions.
+ */
+@Slf4j
+@Component
+public class OverviewPromptAssembler {
+
+    private final int tokenBudget;
+
+    public OverviewPromptAssembler(@Value("${app.ai-overview.token-budget:60000}") final int tokenBudget) {
+        this.tokenBudget = tokenBudget;
+    }
+
+    /**
+     * @param analytics included analytics, i.e. what the prompt is filled with
+     * @param omitted   sections left out completely and list sections cut to the number of items which fit
+     */
+    public record AssembledPrompt(String prompt, int estimatedTokens, Map<String, Object> analytics, Map<String, Integer> omitted) {
+    }
+
+    /**
+     * @param sectionsByPriority keys of the analytics which may be cut, the most important first
+     */
+    public AssembledPrompt assemble(final String template, final Map<String, Object> analytics, final List<String> sectionsByPriority) {
+        Map<String, Object> included = new HashMap<>();
+        analytics.forEach((key, value) -> {
+            if (!sectionsByPriority.contains(key)) {
+                included.put(key, value);
+            }
+        });
+
+        var base = ProfileAiOverviewUtil.fillPrompt(template, included);
+        for (String section : sectionsByPriority) {
+            base = base.replace("{" + section + "}", "");
+        }
+        var remaining = tokenBudget - TokenEstimator.estimate(base);
+
+        Map<String, Integer> omitted = new HashMap<>();
+        for (String section : sectionsByPriority) {
+            var value = analytics.get(section);
+            if (value == null || !template.contains("{" + section + "}")) {
+                continue;
+            }
+            if (value instanceof List<?> items) {
+                var packed = new ArrayList<Object>();
+                remaining -= TokenEstimator.estimate("[]");
+                for (Object item : items) {
+                    var itemTokens = TokenEstimator.estimate(String.valueOf(item) + ", ");
+                    if (itemTokens > remaining) {
+                        break;
+                    }
+                    packed.add(item);
+                    remaining -= itemTokens;
+                }
+                included.put(section, packed);
+                if (packed.size() < items.size()) {
+                    omitted.put(section, items.size() - packed.size());
+                }
+            } else {
+                var sectionTokens = TokenEstimator.estimate(value.toString());
+                if (sectionTokens > remaining) {
+                    omitted.put(section, 1);
+                    continue;
+                }
+                included.put(section, value);
+                remaining -= sectionTokens;
+            }
+        }
+
+        var prompt = ProfileAiOverviewUtil.fillPrompt(template, included);
+        for (String section : omitted.keySet()) {
+            prompt = prompt.replace("{" + section + "}", "");
+        }
+        var estimatedTokens = TokenEstimator.estimate(prompt);
+        log.info("[Overview Prompt] Assembled prompt of ~{} tokens (budget {}, {} characters), omitted: {}",
+            estimatedTokens, tokenBudget, prompt.length(), omitted);
+        return new AssembledPrompt(prompt, estimatedTokens, included, omitted);
+    }
+
+}
@@ -5,10 +5,11 @@ import com.backend.softtrainer.entities.Prompt;
 import com.backend.softtrainer.entities.PromptName;
 import com.backend.softtrainer.entities.User;
 import com.backend.softtrainer.repositories.AiOverviewRepository;
-import com.backend.softtrainer.repositories.PromptRepository;
 import com.backend.softtrainer.repositories.UserHyperParameterRepository;
 import com.backend.softtrainer.repositories.UserRepository;
+import com.backend.softtrainer.services.PromptRegistry;
 import com.backend.softtrainer.services.chatgpt.ChatGptService;
+import com.backend.softtrainer.services.chatgpt.ModelRouter;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -25,65 +26,48 @@ import java.util.Optional;
 public class ProfileAiOverviewService {
   private final UserRepository userRepository;
   private final AiOverviewRepository aiOverviewRepository;
-  private final PromptRepository promptRepository;
+  private final PromptRegistry promptRegistry;
   private final UserHyperParameterRepository userHyperParameterRepository;
   private final ChatGptService chatGptService;
   private final ProfileAnalyticsService profileAnalyticsService;
+  private final OverviewPromptAssembler overviewPromptAssembler;
+  private final ModelRouter modelRouter;
 
   private static final String PROFILE_ENTITY_TYPE = "PROFILE";
-  private static final String LLM_MODEL = "gpt-3.5-turbo";
   private static final PromptName PROMPT_NAME = PromptName.PROFILE_AI_OVERVIEW;
   private static final int MAX_SIMULATIONS_FOR_OVERVIEW = 3; // Limit to last 3 simulations for AI overview
-  private static final int MAX_PROMPT_LENGTH = 255000; // OpenAI limit is 256k, keep buffer
+  private static final List<String> SECTIONS_BY_PRIORITY = List.of("hyperparams", "simulation_results");
 
   public Optional<AiOverview> getLatestProfileOverview(Long userId) {
     return aiOverviewRepository.findLatestByEntity(PROFILE_ENTITY_TYPE, userId);
   }
 
   public AiOverview generateAndStoreProfileOverview(User user) {
-    Prompt prompt = promptRepository.findFirstByNameOrderByIdDesc(PROMPT_NAME)
+    Prompt prompt = promptRegistry.findActive(PROMPT_NAME)
       .orElseThrow(() -> new RuntimeException("Prompt for profile AI overview not found"));
 
     log.info("[AI Overview] Prompt template length: {} characters", prompt.getPrompt().length());
     log.debug("[AI Overview] Prompt template:\n{}", prompt.getPrompt());
     
-    // Start with configured max simulations and reduce if needed
-    int simulationsToInclude = MAX_SIMULATIONS_FOR_OVERVIEW;
-    String filledPrompt;
-    Map<String, Object> analytics;
-    
-    // Iteratively reduce data until prompt fits
-    do {
-      analytics = ProfileAiOverviewUtil.collectUserAnalytics(user, profileAnalyticsService, simulationsToInclude);
-      log.info("[AI Overview] Analytics collected with {} simulations", simulationsToInclude);
-      
-      filledPrompt = ProfileAiOverviewUtil.fillPrompt(prompt.getPrompt(), analytics);
-      log.info("[AI Overview] Filled prompt length: {} characters", filledPrompt.length());
-      
-      if (filledPrompt.length() > MAX_PROMPT_LENGTH) {
-        if (simulationsToInclude > 1) {
-          simulationsToInclude--;
-          log.warn("[AI Overview] Prompt too long ({} chars), reducing to {} simulations", 
-            filledPrompt.length(), simulationsToInclude);
-        } else {
-          log.warn("[AI Overview] Prompt still too long ({} chars) even with 1 simulation. Will truncate.", 
-            filledPrompt.length());
-          break;
-        }
-      } else {
-        break;
-      }
-    } while (simulationsToInclude >= 1);
-    
+    // Collect the analytics once and pack the sections into the token budget by priority
+    var collectedAnalytics = ProfileAiOverviewUtil.collectUserAnalytics(user, profileAnalyticsService, MAX_SIMULATIONS_FOR_OVERVIEW);
+    log.info("[AI Overview] Analytics collected with {} simulations", MAX_SIMULATIONS_FOR_OVERVIEW);
+
+    var assembledPrompt = overviewPromptAssembler.assemble(prompt.getPrompt(), collectedAnalytics, SECTIONS_BY_PRIORITY);
+    String filledPrompt = assembledPrompt.prompt();
+    Map<String, Object> analytics = assembledPrompt.analytics();
+    log.info("[AI Overview] Filled prompt length: {} characters, ~{} tokens", filledPrompt.length(), assembledPrompt.estimatedTokens());
+
     log.debug("[AI Overview] Final filled prompt:\n{}", filledPrompt);
 
     String overviewText = null;
     com.fasterxml.jackson.databind.JsonNode overviewJson = null;
     boolean success = false;
     String errorMessage = null;
+    String llmModel = modelRouter.route(ModelRouter.Operation.OVERVIEW).model();
 
     try {
-      overviewText = chatGptService.generateOverview(filledPrompt, prompt.getAssistantId(), LLM_MODEL);
+      overviewText = chatGptService.generateOverview(filledPrompt, prompt.getAssistantId(), llmModel);
       
       // Check if response is null or empty
       if (overviewText == null || overviewText.trim().isEmpty()) {
@@ -125,7 +109,7 @@ public class ProfileAiOverviewService {
       .overviewText(success ? overviewText : ("Generation failed: " + errorMessage))
       .overviewJson(overviewJson)
       .promptUsed(filledPrompt)
-      .llmModel(LLM_MODEL)
+      .llmModel(llmModel)
       .paramsJson(ProfileAiOverviewUtil.analyticsToJson(analytics))
       .source("profile_progression")
       .createdAt(LocalDateTime.now())
@@ -7,10 +7,11 @@ import com.backend.softtrainer.entities.PromptName;
 import com.backend.softtrainer.entities.User;
 import com.backend.softtrainer.repositories.AiOverviewRepository;
 import com.backend.softtrainer.repositories.OrganizationRepository;
-import com.backend.softtrainer.repositories.PromptRepository;
 import com.backend.softtrainer.repositories.UserHyperParameterRepository;
 import com.backend.softtrainer.repositories.UserRepository;
+import com.backend.softtrainer.services.PromptRegistry;
 import com.backend.softtrainer.services.chatgpt.ChatGptService;
+import com.backend.softtrainer.services.chatgpt.ModelRouter;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -33,20 +34,21 @@ public class TeamAiOverviewService {
     private final UserRepository userRepository;
     private final UserHyperParameterRepository userHyperParameterRepository;
     private final AiOverviewRepository aiOverviewRepository;
-    private final PromptRepository promptRepository;
+    private final PromptRegistry promptRegistry;
     private final TeamAnalyticsService teamAnalyticsService;
     private final ProfileAnalyticsService profileAnalyticsService;
     private final ChatGptService chatGptService;
+    private final OverviewPromptAssembler overviewPromptAssembler;
+    private final ModelRouter modelRouter;
 
     private static final String TEAM_ENTITY_TYPE = "TEAM";
-    private static final String LLM_MODEL = "gpt-3.5-turbo";
     private static final PromptName PROMPT_NAME = PromptName.TEAM_AI_OVERVIEW;
     private static final int MAX_SIMULATIONS_FOR_OVERVIEW = 2;
     private static final int MAX_TEAM_MEMBERS_TO_INCLUDE = 20; // Limit members to prevent prompt overflow
     private static final int MAX_ORGANIZATIONS_PER_BATCH = 10;
     private static final int MAX_RETRIES = 3;
     private static final int LLM_TIMEOUT_SECONDS = 30;
-    private static final int MAX_PROMPT_LENGTH = 255000; // OpenAI limit is 256k, keep buffer
+    private static final List<String> SECTIONS_BY_PRIORITY = List.of("team_heatmap", "member_analytics", "department_distribution");
 
     public Optional<AiOverview> getLatestTeamOverview(Long organizationId) {
         return aiOverviewRepository.findLatestByEntity(TEAM_ENTITY_TYPE, organizationId);
@@ -70,50 +72,22 @@ public class TeamAiOverviewService {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start("collect-analytics");
 
-        Prompt prompt = promptRepository.findFirstByNameOrderByIdDesc(PROMPT_NAME)
+        Prompt prompt = promptRegistry.findActive(PROMPT_NAME)
             .orElseThrow(() -> new RuntimeException("Prompt for team AI overview not found"));
-        log.info("[Team AI Overview] Retrieved prompt: {} (ID: {})", PROMPT_NAME, prompt.getId());
+        log.info("[Team AI Overview] Retrieved prompt: {} (ID: {}, registry version {})", PROMPT_NAME, prompt.getId(), promptRegistry.version());
+
+        // Collect the analytics once and pack the sections into the token budget by priority
+        Map<String, Object> collectedAnalytics = collectTeamAnalytics(organization, MAX_TEAM_MEMBERS_TO_INCLUDE, MAX_SIMULATIONS_FOR_OVERVIEW);
+        stopWatch.stop();
+        log.info("[Team AI Overview] Analytics collected (members: {}, simulations: {})",
+            MAX_TEAM_MEMBERS_TO_INCLUDE, MAX_SIMULATIONS_FOR_OVERVIEW);
+
+        var assembledPrompt = overviewPromptAssembler.assemble(prompt.getPrompt(), collectedAnalytics, SECTIONS_BY_PRIORITY);
+        String filledPrompt = assembledPrompt.prompt();
+        Map<String, Object> analytics = assembledPrompt.analytics();
+        log.info("[Team AI Overview] Prompt filled with analytics data (length: {} chars, ~{} tokens)",
+            filledPrompt.length(), assembledPrompt.estimatedTokens());
 
-        // Start with maximum limits and progressively reduce if prompt is too long
-        int maxMembers = MAX_TEAM_MEMBERS_TO_INCLUDE;
-        int simulationsPerMember = MAX_SIMULATIONS_FOR_OVERVIEW;
-        String filledPrompt;
-        Map<String, Object> analytics;
-        
-        // Iteratively reduce data until prompt fits
-        do {
-            analytics = collectTeamAnalytics(organization, maxMembers, simulationsPerMember);
-            stopWatch.stop();
-            log.info("[Team AI Overview] Analytics collected (members: {}, simulations: {})", 
-                maxMembers, simulationsPerMember);
-
-            filledPrompt = fillPrompt(prompt.getPrompt(), analytics);
-            log.info("[Team AI Overview] Prompt filled with analytics data (length: {} chars)", filledPrompt.length());
-            
-            if (filledPrompt.length() > MAX_PROMPT_LENGTH) {
-                // First try reducing simulations per member
-                if (simulationsPerMember > 1) {
-                    simulationsPerMember--;
-                    log.warn("[Team AI Overview] Prompt too long ({} chars), reducing to {} simulations per member", 
-                        filledPrompt.length(), simulationsPerMember);
-                    stopWatch.start("collect-analytics-retry");
-                // Then try reducing number of members
-                } else if (maxMembers > 5) {
-                    maxMembers = Math.max(5, maxMembers - 5);
-                    simulationsPerMember = MAX_SIMULATIONS_FOR_OVERVIEW; // Reset simulations
-                    log.warn("[Team AI Overview] Prompt too long ({} chars), reducing to {} team members", 
-                        filledPrompt.length(), maxMembers);
-                    stopWatch.start("collect-analytics-retry");
-                } else {
-                    log.warn("[Team AI Overview] Prompt still too long ({} chars) even with minimal data. Will truncate.", 
-                        filledPrompt.length());
-                    break;
-                }
-            } else {
-                break;
-            }
-        } while (true);
-        
         log.debug("[Team AI Overview] Final filled prompt:\n{}", filledPrompt);
 
         String overviewText = null;
@@ -121,12 +95,15 @@ public class TeamAiOverviewService {
         boolean success = false;
         String errorMessage = null;
         int retryCount = 0;
+        String llmModel = null;
 
         stopWatch.start("llm-generation");
         while (retryCount < MAX_RETRIES && !success) {
             log.info("[Team AI Overview] Attempting LLM generation (attempt {}/{})", retryCount + 1, MAX_RETRIES);
             try {
-                overviewText = chatGptService.generateOverview(filledPrompt, prompt.getAssistantId(), LLM_MODEL);
+                // Routed on every attempt, a retry may go to another model
+                llmModel = modelRouter.route(ModelRouter.Operation.OVERVIEW).model();
+                overviewText = chatGptService.generateOverview(filledPrompt, prompt.getAssistantId(), llmModel);
                 
                 // Check if response is null or empty
                 if (overviewText == null || overviewText.trim().isEmpty()) {
@@ -185,7 +162,7 @@ public class TeamAiOverviewService {
             .overviewText(overviewText)
             .overviewJson(overviewJson)
             .promptUsed(filledPrompt)
-            .llmModel(LLM_MODEL)
+            .llmModel(llmModel)
             .paramsJson(analyticsToJson(analytics))
             .source("team_analytics")
             .createdAt(LocalDateTime.now())
@@ -280,15 +257,6 @@ public class TeamAiOverviewService {
         return analytics;
     }
 
-    private String fillPrompt(String promptPattern, Map<String, Object> analytics) {
-        String prompt = promptPattern;
-        for (Map.Entry<String, Object> entry : analytics.entrySet()) {
-            String value = entry.getValue() == null ? "" : entry.getValue().toString();
-            prompt = prompt.replace("{" + entry.getKey() + "}", value);
-        }
-        return prompt;
-    }
-
     private com.fasterxml.jackson.databind.JsonNode analyticsToJson(Map<String, Object> analytics) {
         try {
             com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
@@ -0,0 +1,162 @@
+package com.backend.softtrainer.services.chatgpt;
+
+import com.backend.softtrainer.services.chatgpt.ModelRouter.Operation;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.github.stefanbratanov.jvm.openai.Assistant;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Assistant metadata by assistant id. Runs only need the id, which the prompt already has, so the metadata is only
+ * used for logging: a run reads what is cached and never waits for a load. The assistants of the active prompts are
+ * loaded when the prompts are (re)loaded and when a prompt changes, an entry older than the refresh interval is
+ * reloaded in the background on its next read. The loads are timed to report the round trips the runs skip.
+ */
+@Slf4j
+final class AssistantMetadataCache {
+
+  private static final long MAX_ASSISTANTS = 1_000;
+
+  private static final class SavedLatency {
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+  }
+
+  private final Function<String, Assistant> retrieveAssistant;
+
+  private final LoadingCache<String, Assistant> assistants;
+
+  private final Map<String, Duration> loadLatencies = new ConcurrentHashMap<>();
+
+  private final Map<Operation, SavedLatency> savedLatencies = new EnumMap<>(Operation.class);
+
+  AssistantMetadataCache(final Function<String, Assistant> retrieveAssistant, final Duration refreshAfter) {
+    this(retrieveAssistant, refreshAfter, Ticker.systemTicker());
+  }
+
+  AssistantMetadataCache(final Function<String, Assistant> retrieveAssistant,
+                         final Duration refreshAfter,
+                         final Ticker ticker) {
+    this.retrieveAssistant = retrieveAssistant;
+    this.assistants = Caffeine.newBuilder()
+      .maximumSize(MAX_ASSISTANTS)
+      .refreshAfterWrite(refreshAfter)
+      .ticker(ticker)
+      .recordStats()
+      .build(this::load);
+    for (Operation operation : Operation.values()) {
+      savedLatencies.put(operation, new SavedLatency());
+    }
+  }
+
+  /**
+   * @return the assistant when it is cached, never loads a missing one; a stale one is refreshed in the background
+   */
+  Optional<Assistant> getIfPresent(final String assistantId) {
+    return Optional.ofNullable(assistants.getIfPresent(assistantId));
+  }
+
+  /**
+   * Loads the assistant off the calling thread, e.g. after its prompt is changed
+   */
+  CompletableFuture<Assistant> reload(final String assistantId) {
+    return loadAsync(assistantId, () -> {
+      var assistant = load(assistantId);
+      assistants.put(assistantId, assistant);
+      return assistant;
+    });
+  }
+
+  /**
+   * Loads the assistants which aren't cached yet off the calling thread, e.g. the ones of the active prompts.
+   * An assistant already loading is not loaded again.
+   */
+  void warm(final Collection<String> assistantIds) {
+    assistantIds.stream()
+      .filter(assistantId -> !assistants.asMap().containsKey(assistantId))
+      .forEach(assistantId -> loadAsync(assistantId, () -> assistants.get(assistantId)));
+  }
+
+  private static CompletableFuture<Assistant> loadAsync(final String assistantId, final Supplier<Assistant> loading) {
+    return CompletableFuture.supplyAsync(loading).whenComplete((assistant, e) -> {
+      if (e != null) {
+        log.warn("[Assistants] Failed to load the assistant {}: {}", assistantId, e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * A run of the operation started without the retrieveAssistant call, it saved the latency last measured for that
+   * assistant or, before the assistant was ever loaded, the average of the loads of the others
+   *
+   * @return the latency saved, empty while no load was measured
+   */
+  Optional<Duration> recordSkippedRetrieve(final Operation operation, final String assistantId) {
+    var saved = Optional.ofNullable(loadLatencies.get(assistantId)).or(this::averageLoadLatency);
+    var savedLatency = savedLatencies.get(operation);
+    savedLatency.runs.incrementAndGet();
+    saved.ifPresent(latency -> savedLatency.savedNanos.addAndGet(latency.toNanos()));
+    return saved;
+  }
+
+  Map<String, Object> latencySaved() {
+    Map<String, Object> operations = new LinkedHashMap<>();
+    savedLatencies.forEach((operation, savedLatency) -> {
+      var runs = savedLatency.runs.get();
+      var savedMs = TimeUnit.NANOSECONDS.toMillis(savedLatency.savedNanos.get());
+      operations.put(operation.name().toLowerCase(), Map.of(
+        "runs", runs,
+        "savedMs", savedMs,
+        "avgSavedMs", runs == 0 ? 0 : savedMs / runs
+      ));
+    });
+    return operations;
+  }
+
+  void invalidateAll() {
+    assistants.invalidateAll();
+  }
+
+  long size() {
+    assistants.cleanUp();
+    return assistants.estimatedSize();
+  }
+
+  CacheStats stats() {
+    return assistants.stats();
+  }
+
+  private Assistant load(final String assistantId) {
+    var startedAt = System.nanoTime();
+    var assistant = retrieveAssistant.apply(assistantId);
+    var latency = Duration.ofNanos(System.nanoTime() - startedAt);
+    loadLatencies.put(assistantId, latency);
+    log.info("[Assistants] Loaded assistant {} (ID: {}) in {} ms", assistant.name(), assistant.id(), latency.toMillis());
+    return assistant;
+  }
+
+  private Optional<Duration> averageLoadLatency() {
+    return loadLatencies.values().stream()
+      .mapToLong(Duration::toNanos)
+      .average()
+      .stream()
+      .mapToObj(nanos -> Duration.ofNanos((long) nanos))
+      .findFirst();
+  }
+
+}
@@ -0,0 +1,22 @@
+package com.backend.softtrainer.services.chatgpt;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.Map;
+
+/**
+ * Counters of the assistant metadata cache for the monitoring endpoints
+ */
+public interface AssistantMetadataMetrics {
+
+  long assistantCacheSize();
+
+  CacheStats assistantCacheStats();
+
+  /**
+   * @return per operation (hint, summary, ...): the runs started without a retrieveAssistant round trip and the
+   * latency of the round trips they skipped
+   */
+  Map<String, Object> assistantLatencySaved();
+
+}
@@ -0,0 +1,152 @@
+package com.backend.softtrainer.services.chatgpt;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Single flight of the assistant runs: callers asking for the same generation (assistant, model, response format and
+ * final instructions) while it is in flight share its result instead of starting their own thread and run.
+ * The streamed parts of the content go to the listeners of all the callers, a caller joining late gets the parts
+ * streamed so far first.
+ * Nothing is kept after the run is done. The flights are kept in memory, so the sharing is per node: the same
+ * generation asked on two nodes runs twice.
+ */
+@Slf4j
+@Component
+public class AssistantRequestCoalescer {
+
+  private final Map<String, Flight<?>> inFlight = new ConcurrentHashMap<>();
+
+  private final AtomicLong executed = new AtomicLong();
+
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * @param contentListener gets the streamed parts of the content, may be null
+   * @param request         starts the generation with the listener of all the callers, invoked only when the same
+   *                        generation isn't in flight
+   * @return the result of the generation; every caller gets its own copy, so a caller giving up doesn't affect the
+   * others
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<T> coalesce(final String logPrefix,
+                                           final String assistantId,
+                                           final String model,
+                                           final String responseFormat,
+                                           final String instructions,
+                                           final Consumer<String> contentListener,
+                                           final Function<Consumer<String>, CompletableFuture<T>> request) {
+    var key = requestKey(assistantId, model, responseFormat, instructions);
+    var flight = new Flight<T>(logPrefix);
+    flight.join(contentListener);
+    var existing = (Flight<T>) inFlight.putIfAbsent(key, flight);
+    if (existing != null) {
+      coalesced.incrementAndGet();
+      log.info("{} The same request to the assistant {} is in flight, sharing its result", logPrefix, assistantId);
+      existing.join(contentListener);
+      return existing.result.copy();
+    }
+
+    executed.incrementAndGet();
+    var result = flight.result;
+    result.whenComplete((value, e) -> inFlight.remove(key, flight));
+    try {
+      request.apply(flight::publish).whenComplete((value, e) -> {
+        if (e != null) {
+          result.completeExceptionally(e);
+        } else {
+          result.complete(value);
+        }
+      });
+    } catch (RuntimeException e) {
+      result.completeExceptionally(e);
+    }
+    return result.copy();
+  }
+
+  public Map<String, Object> stats() {
+    var executedCount = executed.get();
+    var coalescedCount = coalesced.get();
+    var total = executedCount + coalescedCount;
+    return Map.of(
+      "executed", executedCount,
+      "coalesced", coalescedCount,
+      "coalescedRate", total == 0 ? 0.0 : (double) coalescedCount / total,
+      "inFlight", inFlight.size()
+    );
+  }
+
+  /**
+   * One generation in flight with the listeners of its callers
+   */
+  private static final class Flight<T> {
+
+    private final String logPrefix;
+
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+
+    private final List<Consumer<String>> listeners = new ArrayList<>();
+
+    private final StringBuilder streamed = new StringBuilder();
+
+    private Flight(final String logPrefix) {
+      this.logPrefix = logPrefix;
+    }
+
+    private synchronized void join(final Consumer<String> listener) {
+      if (listener == null) {
+        return;
+      }
+      if (!streamed.isEmpty()) {
+        notify(listener, streamed.toString());
+      }
+      listeners.add(listener);
+    }
+
+    private synchronized void publish(final String delta) {
+      streamed.append(delta);
+      listeners.forEach(listener -> notify(listener, delta));
+    }
+
+    private void notify(final Consumer<String> listener, final String delta) {
+      try {
+        listener.accept(delta);
+      } catch (Exception e) {
+        log.warn("{} Content listener failed: {}", logPrefix, e.getMessage());
+      }
+    }
+  }
+
+  static String requestKey(final String assistantId,
+                           final String model,
+                           final String responseFormat,
+                           final String instructions) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      digest.update(String.valueOf(assistantId).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(String.valueOf(model).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(String.valueOf(responseFormat).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(String.valueOf(instructions).getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,248 @@
+package com.backend.softtrainer.services.chatgpt;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * One budget of the assistant runs for all callers: at most max-concurrent-runs in flight and at most
+ * tokens-per-minute of instructions started within the last minute.
+ * Interactive requests (hints, classification, summaries) go first, a batch request (overviews) waits while any
+ * interactive one is waiting and never takes more than batch-max-concurrent-runs, so a batch burst can't starve the
+ * users.
+ * The caller waits for its turn on its own thread, the waiting time is recorded per lane.
+ * A request still waiting after the max queue wait of its lane is rejected, the caller falls back to its failure
+ * content instead of holding the thread for as long as the backlog lasts.
+ */
+@Slf4j
+@Component
+public class AssistantRequestDispatcher {
+
+  public enum Lane {
+    INTERACTIVE,
+    BATCH
+  }
+
+  private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private static final long MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private record StartedTokens(long startedAt, int tokens) {
+  }
+
+  private static final class LaneStats {
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+  }
+
+  private final int maxConcurrentRuns;
+
+  private final int batchMaxConcurrentRuns;
+
+  private final long tokensPerMinute;
+
+  private final Map<Lane, Duration> maxQueueWait = new EnumMap<>(Lane.class);
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition released = lock.newCondition();
+
+  private final Map<Lane, Integer> inFlight = new EnumMap<>(Lane.class);
+
+  private final Map<Lane, Integer> waiting = new EnumMap<>(Lane.class);
+
+  private final Deque<StartedTokens> startedTokens = new ArrayDeque<>();
+
+  private long tokensInWindow;
+
+  private final Map<Lane, LaneStats> stats = new EnumMap<>(Lane.class);
+
+  public AssistantRequestDispatcher(@Value("${app.openai.max-concurrent-runs:16}") final int maxConcurrentRuns,
+                                    @Value("${app.openai.batch-max-concurrent-runs:4}") final int batchMaxConcurrentRuns,
+                                    @Value("${app.openai.tokens-per-minute:150000}") final long tokensPerMinute,
+                                    @Value("${app.openai.interactive-max-queue-wait:20s}") final Duration interactiveMaxQueueWait,
+                                    @Value("${app.openai.batch-max-queue-wait:5m}") final Duration batchMaxQueueWait) {
+    this.maxConcurrentRuns = maxConcurrentRuns;
+    this.batchMaxConcurrentRuns = batchMaxConcurrentRuns;
+    this.tokensPerMinute = tokensPerMinute;
+    maxQueueWait.put(Lane.INTERACTIVE, interactiveMaxQueueWait);
+    maxQueueWait.put(Lane.BATCH, batchMaxQueueWait);
+    for (Lane lane : Lane.values()) {
+      inFlight.put(lane, 0);
+      waiting.put(lane, 0);
+      stats.put(lane, new LaneStats());
+    }
+  }
+
+  /**
+   * Waits until the budget allows the request, starts it and keeps its share of the budget until it is done.
+   *
+   * @param instructions the prompt of the run, its estimated tokens count against the tokens per minute
+   * @param request      starts the run
+   * @return result of the request, failed with a {@link RejectedExecutionException} when the request didn't get its
+   * turn within the max queue wait of the lane
+   */
+  public <T> CompletableFuture<T> dispatch(final String logPrefix,
+                                           final Lane lane,
+                                           final String instructions,
+                                           final Supplier<CompletableFuture<T>> request) {
+    var tokens = TokenEstimator.estimate(instructions);
+    var queuedAt = System.nanoTime();
+    var laneStats = stats.get(lane);
+    try {
+      if (!acquire(lane, tokens, queuedAt + maxQueueWait.get(lane).toNanos())) {
+        laneStats.rejected.incrementAndGet();
+        log.warn("{} Rejected after waiting {} in the {} lane for the assistant budget",
+          logPrefix, maxQueueWait.get(lane), lane);
+        return CompletableFuture.failedFuture(new RejectedExecutionException(
+          "No assistant budget in the " + lane + " lane within " + maxQueueWait.get(lane)));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return CompletableFuture.failedFuture(e);
+    }
+
+    var queueNanos = System.nanoTime() - queuedAt;
+    laneStats.dispatched.incrementAndGet();
+    laneStats.queueNanos.addAndGet(queueNanos);
+    laneStats.maxQueueNanos.accumulateAndGet(queueNanos, Math::max);
+    if (queueNanos >= MAX_WAIT_NANOS) {
+      log.info("{} Waited {} ms in the {} lane for the assistant budget",
+        logPrefix, TimeUnit.NANOSECONDS.toMillis(queueNanos), lane);
+    }
+
+    try {
+      return request.get().whenComplete((result, e) -> release(lane));
+    } catch (RuntimeException e) {
+      release(lane);
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  public Map<String, Object> stats() {
+    Map<String, Object> lanes = new LinkedHashMap<>();
+    lock.lock();
+    try {
+      expireTokens(System.nanoTime());
+      for (Lane lane : Lane.values()) {
+        var laneStats = stats.get(lane);
+        var dispatched = laneStats.dispatched.get();
+        lanes.put(lane.name().toLowerCase(), Map.of(
+          "inFlight", inFlight.get(lane),
+          "waiting", waiting.get(lane),
+          "dispatched", dispatched,
+          "rejected", laneStats.rejected.get(),
+          "avgQueueMs", dispatched == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(laneStats.queueNanos.get() / dispatched),
+          "maxQueueMs", TimeUnit.NANOSECONDS.toMillis(laneStats.maxQueueNanos.get())
+        ));
+      }
+      return Map.of(
+        "maxConcurrentRuns", maxConcurrentRuns,
+        "batchMaxConcurrentRuns", batchMaxConcurrentRuns,
+        "tokensPerMinute", tokensPerMinute,
+        "tokensInLastMinute", tokensInWindow,
+        "lanes", lanes
+      );
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return runs a new interactive run would wait for: all the runs in flight and the interactive ones waiting
+   */
+  int interactiveQueueDepth() {
+    lock.lock();
+    try {
+      return inFlight.values().stream().mapToInt(Integer::intValue).sum() + waiting.get(Lane.INTERACTIVE);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int maxConcurrentRuns() {
+    return maxConcurrentRuns;
+  }
+
+  /**
+   * @return false when the request can't start before the deadline
+   */
+  private boolean acquire(final Lane lane, final int tokens, final long deadline) throws InterruptedException {
+    lock.lock();
+    waiting.merge(lane, 1, Integer::sum);
+    try {
+      while (!canStart(lane, tokens)) {
+        var untilDeadline = deadline - System.nanoTime();
+        if (untilDeadline <= 0) {
+          return false;
+        }
+        released.awaitNanos(Math.min(nanosToWait(), untilDeadline));
+      }
+      inFlight.merge(lane, 1, Integer::sum);
+      startedTokens.addLast(new StartedTokens(System.nanoTime(), tokens));
+      tokensInWindow += tokens;
+      return true;
+    } finally {
+      waiting.merge(lane, -1, Integer::sum);
+      lock.unlock();
+    }
+  }
+
+  private void release(final Lane lane) {
+    lock.lock();
+    try {
+      inFlight.merge(lane, -1, Integer::sum);
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean canStart(final Lane lane, final int tokens) {
+    expireTokens(System.nanoTime());
+    var totalInFlight = inFlight.values().stream().mapToInt(Integer::intValue).sum();
+    if (totalInFlight >= maxConcurrentRuns) {
+      return false;
+    }
+    if (lane == Lane.BATCH
+      && (waiting.get(Lane.INTERACTIVE) > 0 || inFlight.get(Lane.BATCH) >= batchMaxConcurrentRuns)) {
+      return false;
+    }
+    // a request bigger than the whole budget still runs once the window is empty
+    return tokensInWindow == 0 || tokensInWindow + tokens <= tokensPerMinute;
+  }
+
+  private void expireTokens(final long now) {
+    while (!startedTokens.isEmpty() && now - startedTokens.peekFirst().startedAt() >= WINDOW_NANOS) {
+      tokensInWindow -= startedTokens.pollFirst().tokens();
+    }
+  }
+
+  /**
+   * Waiting for a release is signalled, the tokens leaving the window are not, so the wait is bounded
+   */
+  private long nanosToWait() {
+    if (startedTokens.isEmpty()) {
+      return MAX_WAIT_NANOS;
+    }
+    var untilOldestExpires = startedTokens.peekFirst().startedAt() + WINDOW_NANOS - System.nanoTime();
+    return Math.max(1, Math.min(untilOldestExpires, MAX_WAIT_NANOS));
+  }
+
+}
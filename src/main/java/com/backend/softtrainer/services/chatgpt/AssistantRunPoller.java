@@ -0,0 +1,144 @@
+package com.backend.softtrainer.services.chatgpt;
+
+import io.github.stefanbratanov.jvm.openai.ThreadRun;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Polls the in-flight assistant runs on a few shared scheduler threads instead of one sleeping thread per run.
+ * The first checks are frequent, since short runs are done in a second or two, then the interval backs off.
+ */
+@Slf4j
+@Component
+public class AssistantRunPoller {
+
+  static final List<Duration> POLL_INTERVALS = List.of(
+    Duration.ofMillis(200),
+    Duration.ofMillis(300),
+    Duration.ofMillis(500),
+    Duration.ofMillis(750),
+    Duration.ofSeconds(1),
+    Duration.ofMillis(1500),
+    Duration.ofSeconds(2)
+  );
+
+  private static final Set<String> TERMINAL_STATUSES = Set.of(
+    "completed",
+    "failed",
+    "cancelled",
+    "expired",
+    "incomplete",
+    "requires_action"
+  );
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Duration runTimeout;
+
+  private final Map<String, CompletableFuture<ThreadRun>> inFlightRuns = new ConcurrentHashMap<>();
+
+  public AssistantRunPoller(@Value("${app.openai.poller-threads:4}") final int pollerThreads,
+                            @Value("${app.openai.run-timeout:3m}") final Duration runTimeout) {
+    this.scheduler = Executors.newScheduledThreadPool(pollerThreads, pollerThreadFactory());
+    this.runTimeout = runTimeout;
+  }
+
+  /**
+   * @param retrieveRun fetches the current state of the run
+   * @return the run in its terminal status, completed exceptionally with a {@link TimeoutException} when the run
+   * takes longer than the run timeout
+   */
+  public CompletableFuture<ThreadRun> awaitTermination(final String runId, final Supplier<ThreadRun> retrieveRun) {
+    var result = new CompletableFuture<ThreadRun>();
+    inFlightRuns.put(runId, result);
+    result.whenComplete((run, e) -> inFlightRuns.remove(runId));
+
+    schedulePoll(runId, retrieveRun, result, 0, System.nanoTime());
+    return result;
+  }
+
+  public int inFlightRuns() {
+    return inFlightRuns.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  static Duration pollInterval(final int attempt) {
+    return POLL_INTERVALS.get(Math.min(attempt, POLL_INTERVALS.size() - 1));
+  }
+
+  private void schedulePoll(final String runId,
+                            final Supplier<ThreadRun> retrieveRun,
+                            final CompletableFuture<ThreadRun> result,
+                            final int attempt,
+                            final long startedAt) {
+    scheduler.schedule(
+      () -> poll(runId, retrieveRun, result, attempt, startedAt),
+      pollInterval(attempt).toMillis(),
+      TimeUnit.MILLISECONDS
+    );
+  }
+
+  private void poll(final String runId,
+                    final Supplier<ThreadRun> retrieveRun,
+                    final CompletableFuture<ThreadRun> result,
+                    final int attempt,
+                    final long startedAt) {
+    if (result.isDone()) {
+      return;
+    }
+    var elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+    try {
+      var run = retrieveRun.get();
+      log.info("[Run poller] Poll #{} of the run {}, status: {}, elapsed time: {} ms",
+        attempt + 1,
+        runId,
+        run.status(),
+        elapsed.toMillis()
+      );
+
+      if (TERMINAL_STATUSES.contains(run.status())) {
+        result.complete(run);
+        return;
+      }
+    } catch (Exception e) {
+      log.warn("[Run poller] Poll #{} of the run {} failed: {}", attempt + 1, runId, e.getMessage());
+    }
+
+    if (elapsed.compareTo(runTimeout) >= 0) {
+      result.completeExceptionally(new TimeoutException(
+        String.format("The run %s is not finished in %s", runId, runTimeout)));
+      return;
+    }
+    schedulePoll(runId, retrieveRun, result, attempt + 1, startedAt);
+  }
+
+  private static ThreadFactory pollerThreadFactory() {
+    var counter = new AtomicInteger();
+    return runnable -> {
+      var thread = new Thread(runnable, "assistant-run-poller-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+}
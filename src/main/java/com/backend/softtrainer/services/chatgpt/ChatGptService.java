@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface ChatGptService {
 
@@ -19,16 +20,40 @@ public interface ChatGptService {
     Prompt prompt
   ) throws InterruptedException;
 
-  CompletableFuture<MessageDto> buildAfterwardSimulationRecommendation(
+  default CompletableFuture<MessageDto> buildAfterwardSimulationRecommendation(
     ChatDto chat,
     Prompt prompt,
     Map<String, Double> params,
     String skillName,
     String onboardingExtraction,
     String localization
+  ) throws InterruptedException {
+    return buildAfterwardSimulationRecommendation(
+      chat,
+      prompt,
+      params,
+      skillName,
+      onboardingExtraction,
+      localization,
+      delta -> {
+      }
+    );
+  }
+
+  /**
+   * @param contentListener gets the parts of the content as soon as they are generated
+   */
+  CompletableFuture<MessageDto> buildAfterwardSimulationRecommendation(
+    ChatDto chat,
+    Prompt prompt,
+    Map<String, Double> params,
+    String skillName,
+    String onboardingExtraction,
+    String localization,
+    Consumer<String> contentListener
   ) throws InterruptedException;
 
-  CompletableFuture<MessageDto> buildAfterwardActionableHintMessage(
+  default CompletableFuture<MessageDto> buildAfterwardActionableHintMessage(
     ChatDto chat,
     List<Message> actionableMessages,
     Prompt prompt,
@@ -36,6 +61,33 @@ public interface ChatGptService {
     String skillName,
     String onboardingExtraction,
     String localization
+  ) throws InterruptedException {
+    return buildAfterwardActionableHintMessage(
+      chat,
+      actionableMessages,
+      prompt,
+      params,
+      skillName,
+      onboardingExtraction,
+      localization,
+      delta -> {
+      }
+    );
+  }
+
+  /**
+   * @param contentListener gets the parts of the content as soon as they are generated
+   * @return completes with null when the hint can't be generated within its budget and the template text is used
+   */
+  CompletableFuture<MessageDto> buildAfterwardActionableHintMessage(
+    ChatDto chat,
+    List<Message> actionableMessages,
+    Prompt prompt,
+    Map<String, Double> params,
+    String skillName,
+    String onboardingExtraction,
+    String localization,
+    Consumer<String> contentListener
   ) throws InterruptedException;
 
   // New method for AI overview
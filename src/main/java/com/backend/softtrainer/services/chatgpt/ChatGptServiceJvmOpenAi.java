@@ -5,7 +5,11 @@ import com.backend.softtrainer.dtos.MessageDto;
 import com.backend.softtrainer.entities.Prompt;
 import com.backend.softtrainer.entities.messages.EnterTextQuestionMessage;
 import com.backend.softtrainer.entities.messages.Message;
-import io.github.stefanbratanov.jvm.openai.Assistant;
+import com.backend.softtrainer.events.PromptChangedEvent;
+import com.backend.softtrainer.events.PromptsRefreshedEvent;
+import com.backend.softtrainer.services.chatgpt.ModelRouter.Operation;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.github.stefanbratanov.jvm.openai.AssistantStreamEvent;
 import io.github.stefanbratanov.jvm.openai.AssistantsClient;
 import io.github.stefanbratanov.jvm.openai.AssistantsResponseFormat;
 import io.github.stefanbratanov.jvm.openai.ChatClient;
@@ -17,10 +21,13 @@ import io.github.stefanbratanov.jvm.openai.PaginationQueryParameters;
 import io.github.stefanbratanov.jvm.openai.ResponseFormat;
 import io.github.stefanbratanov.jvm.openai.RunsClient;
 import io.github.stefanbratanov.jvm.openai.ThreadMessage;
+import io.github.stefanbratanov.jvm.openai.ThreadMessageDelta;
 import io.github.stefanbratanov.jvm.openai.ThreadRun;
 import io.github.stefanbratanov.jvm.openai.ThreadsClient;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.NotImplementedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
@@ -29,34 +36,62 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
-public class ChatGptServiceJvmOpenAi implements ChatGptService {
+public class ChatGptServiceJvmOpenAi implements ChatGptService, AssistantMetadataMetrics {
 
-  private final OpenAI openAI = OpenAI.newBuilder(System.getenv("OPEN_AI_SECRET_KEY"))
-    .requestTimeout(Duration.ofSeconds(10))
-    .build();
+  private static final Duration ASSISTANT_METADATA_REFRESH = Duration.ofMinutes(30);
 
-  private final ChatClient chatClient = openAI.chatClient();
+  private final ChatClient chatClient;
 
-  private final ThreadsClient threadsClient = openAI.threadsClient();
+  private final ThreadsClient threadsClient;
 
-  private final AssistantsClient assistantsClient = openAI.assistantsClient();
+  private final AssistantsClient assistantsClient;
 
-  private final MessagesClient messagesClient = openAI.messagesClient();
+  private final MessagesClient messagesClient;
 
-  private final RunsClient runsClient = openAI.runsClient();
+  private final RunsClient runsClient;
 
-  private final String gptModel = "gpt-4o-mini";
+  private final AssistantRunPoller runPoller;
+
+  private final AssistantRequestCoalescer requestCoalescer;
+
+  private final AssistantRequestDispatcher requestDispatcher;
+
+  private final ModelRouter modelRouter;
+
+  private final AssistantMetadataCache assistantMetadataCache;
+
+  @Value("${app.openai.streaming:true}")
+  private boolean streaming;
+
+  public ChatGptServiceJvmOpenAi(final OpenAI openAI,
+                                 final AssistantRunPoller runPoller,
+                                 final AssistantRequestCoalescer requestCoalescer,
+                                 final AssistantRequestDispatcher requestDispatcher,
+                                 final ModelRouter modelRouter) {
+    this.chatClient = openAI.chatClient();
+    this.threadsClient = openAI.threadsClient();
+    this.assistantsClient = openAI.assistantsClient();
+    this.messagesClient = openAI.messagesClient();
+    this.runsClient = openAI.runsClient();
+    this.runPoller = runPoller;
+    this.requestCoalescer = requestCoalescer;
+    this.requestDispatcher = requestDispatcher;
+    this.modelRouter = modelRouter;
+    this.assistantMetadataCache = new AssistantMetadataCache(assistantsClient::retrieveAssistant, ASSISTANT_METADATA_REFRESH);
 
-  // Add logging for OpenAI client initialization
-  {
     log.info("[OpenAI] Initializing OpenAI client with timeout: {} seconds", 10);
-    log.info("[OpenAI] Using model: {}", gptModel);
   }
 
   public CompletableFuture<MessageDto> completeChat(final ChatDto chat) {
@@ -175,70 +210,9 @@ public class ChatGptServiceJvmOpenAi implements ChatGptService {
     log.debug("[Classification] Full prompt:\n{}", promptMessage);
 
     // 🟢 3. Start OpenAI API Request
-    log.info("[Classification] Creating new thread...");
-    CreateThreadRequest createThreadRequest = CreateThreadRequest.newBuilder().build();
-    var thread = threadsClient.createThread(createThreadRequest);
-    log.info("[Classification] Thread created with ID: {}", thread.id());
-
-    log.info("[Classification] Retrieving assistant...");
-//    Assistant assistant = assistantsClient.retrieveAssistant(prompt.getAssistantId());
-//    log.info("[Classification] Retrieved assistant: {} (ID: {})", assistant.name(), assistant.id());
-
-    CreateRunRequest createRunRequest = CreateRunRequest.newBuilder()
-      .assistantId(prompt.getAssistantId())
-      .instructions(promptMessage)
-      .responseFormat(AssistantsResponseFormat.responseFormat(ResponseFormat.json()))
-      .build();
-
-    ThreadRun run = runsClient.createRun(thread.id(), Optional.empty(), createRunRequest);
-    log.info("[Classification] Run created with ID: {} and initial status: {}", run.id(), run.status());
-
-    // 🟢 4. Implement Proper Polling Instead of Thread.sleep()
-    ThreadRun retrievedRun;
-    int pollCount = 0;
-    LocalDateTime startTime = LocalDateTime.now();
-    do {
-      Thread.sleep(1000); // Poll every second
-      pollCount++;
-      retrievedRun = runsClient.retrieveRun(thread.id(), run.id());
-      log.info("[Classification] Poll #{}, status: {}, elapsed time: {} seconds",
-        pollCount,
-        retrievedRun.status(),
-        Duration.between(startTime, LocalDateTime.now()).getSeconds()
-      );
-    } while (!retrievedRun.status().equals("completed") && !retrievedRun.status().equals("failed"));
-
-    // 🟢 5. Handle OpenAI API Response
-    if (!retrievedRun.status().equals("completed")) {
-      log.warn("[Classification] Run failed with status: {}", retrievedRun.status());
-      if (retrievedRun.lastError() != null) {
-        log.error("[Classification] Run error: {}", retrievedRun.lastError().message());
-      }
-      return CompletableFuture.completedFuture(new MessageDto("AI classification failed."));
-    }
-
-    log.info("[Classification] Run completed successfully, retrieving messages...");
-    MessagesClient.PaginatedThreadMessages paginatedMessages = messagesClient.listMessages(
-      thread.id(),
-      PaginationQueryParameters.none(),
-      Optional.empty()
-    );
-    List<ThreadMessage> messagesResponse = paginatedMessages.data();
-
-    if (messagesResponse.isEmpty()) {
-      log.warn("[Classification] No messages found in thread");
-      return CompletableFuture.completedFuture(new MessageDto(""));
-    }
-
-    String content = messagesResponse.get(0)
-      .content()
-      .stream()
-      .map(cnt -> ((ThreadMessage.Content.TextContent) cnt).text().value())
-      .collect(Collectors.joining(" "));
-
-    log.info("[Classification] Successfully generated classification (length: {} characters)", content.length());
-    log.debug("[Classification] Classification content: {}", content);
-    return CompletableFuture.completedFuture(new MessageDto(content));
+    return runAssistant("[Classification]", Operation.CLASSIFICATION, modelRouter.route(Operation.CLASSIFICATION).model(),
+      prompt.getAssistantId(), promptMessage, true, null,
+      "AI classification failed.", "");
   }
 
 
@@ -249,7 +223,8 @@ public class ChatGptServiceJvmOpenAi implements ChatGptService {
     final Map<String, Double> params,
     final String skillName,
     final String onboardingExtraction,
-    final String localization
+    final String localization,
+    final Consumer<String> contentListener
   ) throws InterruptedException {
     log.info("[Simulation] Starting simulation recommendation at {}", LocalDateTime.now());
     log.info("[Simulation] Using assistant ID: {}", prompt.getAssistantId());
@@ -287,70 +262,9 @@ public class ChatGptServiceJvmOpenAi implements ChatGptService {
     log.debug("[Simulation] Full prompt:\n{}", promptMessage);
 
     // 🟢 4. Start OpenAI API Request
-    log.info("[Simulation] Creating new thread...");
-    CreateThreadRequest createThreadRequest = CreateThreadRequest.newBuilder().build();
-    var thread = threadsClient.createThread(createThreadRequest);
-    log.info("[Simulation] Thread created with ID: {}", thread.id());
-
-    log.info("[Simulation] Retrieving assistant...");
-    Assistant assistant = assistantsClient.retrieveAssistant(prompt.getAssistantId());
-    log.info("[Simulation] Retrieved assistant: {} (ID: {})", assistant.name(), assistant.id());
-
-    CreateRunRequest createRunRequest = CreateRunRequest.newBuilder()
-      .assistantId(assistant.id())
-      .instructions(promptMessage)
-      .responseFormat(AssistantsResponseFormat.auto())
-      .build();
-
-    ThreadRun run = runsClient.createRun(thread.id(), Optional.empty(), createRunRequest);
-    log.info("[Simulation] Run created with ID: {} and initial status: {}", run.id(), run.status());
-
-    // 🟢 5. Implement Proper Polling Instead of Thread.sleep()
-    ThreadRun retrievedRun;
-    int pollCount = 0;
-    LocalDateTime startTime = LocalDateTime.now();
-    do {
-      Thread.sleep(1000); // Poll every second
-      pollCount++;
-      retrievedRun = runsClient.retrieveRun(thread.id(), run.id());
-      log.info("[Simulation] Poll #{}, status: {}, elapsed time: {} seconds",
-        pollCount,
-        retrievedRun.status(),
-        Duration.between(startTime, LocalDateTime.now()).getSeconds()
-      );
-    } while (!retrievedRun.status().equals("completed") && !retrievedRun.status().equals("failed"));
-
-    // 🟢 6. Handle OpenAI API Response
-    if (!retrievedRun.status().equals("completed")) {
-      log.warn("[Simulation] Run failed with status: {}", retrievedRun.status());
-      if (retrievedRun.lastError() != null) {
-        log.error("[Simulation] Run error: {}", retrievedRun.lastError().message());
-      }
-      return CompletableFuture.completedFuture(new MessageDto("AI simulation summary generation failed."));
-    }
-
-    log.info("[Simulation] Run completed successfully, retrieving messages...");
-    MessagesClient.PaginatedThreadMessages paginatedMessages = messagesClient.listMessages(
-      thread.id(),
-      PaginationQueryParameters.none(),
-      Optional.empty()
-    );
-    List<ThreadMessage> messagesResponse = paginatedMessages.data();
-
-    if (messagesResponse.isEmpty()) {
-      log.warn("[Simulation] No messages found in thread");
-      return CompletableFuture.completedFuture(new MessageDto(""));
-    }
-
-    String content = messagesResponse.get(0)
-      .content()
-      .stream()
-      .map(cnt -> ((ThreadMessage.Content.TextContent) cnt).text().value())
-      .collect(Collectors.joining(" "));
-
-    log.info("[Simulation] Successfully generated recommendation (length: {} characters)", content.length());
-    log.debug("[Simulation] Recommendation content: {}", content);
-    return CompletableFuture.completedFuture(new MessageDto(content));
+    return runAssistant("[Simulation]", Operation.SUMMARY, modelRouter.route(Operation.SUMMARY).model(),
+      prompt.getAssistantId(), promptMessage, false, contentListener,
+      "AI simulation summary generation failed.", "");
   }
 
 
@@ -362,7 +276,8 @@ public class ChatGptServiceJvmOpenAi implements ChatGptService {
     final Map<String, Double> params,
     final String skillName,
     final String onboardingExtraction,
-    final String localization
+    final String localization,
+    final Consumer<String> contentListener
   ) throws InterruptedException {
     log.info("[Hint] Starting hint message generation at {}", LocalDateTime.now());
     log.info("[Hint] Using assistant ID: {}", prompt.getAssistantId());
@@ -395,69 +310,258 @@ public class ChatGptServiceJvmOpenAi implements ChatGptService {
     log.info("[Hint] Generated prompt (length: {} characters)", promptMessage.length());
     log.debug("[Hint] Full prompt:\n{}", promptMessage);
 
-    log.info("[Hint] Creating new thread...");
-    CreateThreadRequest createThreadRequest = CreateThreadRequest.newBuilder().build();
-    var thread = threadsClient.createThread(createThreadRequest);
-    log.info("[Hint] Thread created with ID: {}", thread.id());
+    var route = modelRouter.route(Operation.HINT);
+    if (route.degraded()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return runAssistant("[Hint]", Operation.HINT, route.model(), prompt.getAssistantId(), promptMessage, false, contentListener,
+      "AI hint generation failed.", "");
+  }
 
-    log.info("[Hint] Retrieving assistant...");
-    Assistant assistant = assistantsClient.retrieveAssistant(prompt.getAssistantId());
-    log.info("[Hint] Retrieved assistant: {} (ID: {})", assistant.name(), assistant.id());
+  /**
+   * Runs the assistant on a new thread, streamed when there is a content listener and streaming is on, polled
+   * otherwise. The same run already in flight on this node is shared instead of started again, its streamed parts go
+   * to the listeners of all the callers. A new run waits for its turn in the lane of the shared assistant budget. A
+   * run not getting its turn in time, or failing on an OpenAI error, ends with the failure content and never with a
+   * failed future. The latency and the outcome of the run feed the model routing.
+   *
+   * @param model        overrides the model of the assistant, null keeps it
+   * @param jsonResponse whether the assistant has to answer with json
+   * @return content of the answer, failureContent when the run doesn't complete, emptyContent when there is no answer
+   */
+  private CompletableFuture<MessageDto> runAssistant(final String logPrefix,
+                                                     final Operation operation,
+                                                     final String model,
+                                                     final String assistantId,
+                                                     final String instructions,
+                                                     final boolean jsonResponse,
+                                                     final Consumer<String> contentListener,
+                                                     final String failureContent,
+                                                     final String emptyContent) {
+    var stream = streaming && contentListener != null;
+    return requestCoalescer.coalesce(logPrefix, assistantId, model, jsonResponse ? "json" : "auto", instructions,
+      contentListener, sharedListener -> requestDispatcher.dispatch(logPrefix, operation.lane(), instructions, () -> recordRun(operation, model, failureContent, () -> {
+        log.info("{} Creating new thread...", logPrefix);
+        CreateThreadRequest createThreadRequest = CreateThreadRequest.newBuilder().build();
+        var thread = threadsClient.createThread(createThreadRequest);
+        log.info("{} Thread created with ID: {}", logPrefix, thread.id());
+
+        logAssistant(logPrefix, operation, assistantId);
+
+        var createRunRequestBuilder = CreateRunRequest.newBuilder()
+          .assistantId(assistantId)
+          .instructions(instructions)
+          .responseFormat(jsonResponse
+            ? AssistantsResponseFormat.responseFormat(ResponseFormat.json())
+            : AssistantsResponseFormat.auto())
+          .stream(stream);
+        if (model != null) {
+          createRunRequestBuilder.model(model);
+        }
+        CreateRunRequest createRunRequest = createRunRequestBuilder.build();
 
-    CreateRunRequest createRunRequest = CreateRunRequest.newBuilder()
-      .assistantId(assistant.id())
-      .instructions(promptMessage)
-      .responseFormat(AssistantsResponseFormat.auto())
-      .build();
+        if (stream) {
+          return CompletableFuture.completedFuture(
+            streamRun(logPrefix, thread.id(), createRunRequest, sharedListener, failureContent));
+        }
 
-    ThreadRun run = runsClient.createRun(thread.id(), Optional.empty(), createRunRequest);
-    log.info("[Hint] Run created with ID: {} and initial status: {}", run.id(), run.status());
+        ThreadRun run = runsClient.createRun(thread.id(), Optional.empty(), createRunRequest);
+        log.info("{} Run created with ID: {} and initial status: {}", logPrefix, run.id(), run.status());
 
-    // Polling mechanism for waiting on OpenAI response
-    ThreadRun retrievedRun;
-    int pollCount = 0;
+        return awaitRunContent(logPrefix, thread.id(), run, failureContent, emptyContent);
+      })).exceptionally(e -> {
+        var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RejectedExecutionException) {
+          log.warn("{} No assistant budget for the run: {}", logPrefix, cause.getMessage());
+        } else {
+          log.error("{} The run failed", logPrefix, cause);
+        }
+        return new MessageDto(failureContent);
+      }));
+  }
+
+  private CompletableFuture<MessageDto> recordRun(final Operation operation,
+                                                  final String model,
+                                                  final String failureContent,
+                                                  final Supplier<CompletableFuture<MessageDto>> run) {
+    var startedAt = System.nanoTime();
+    return run.get().whenComplete((result, e) -> modelRouter.record(
+      operation,
+      model,
+      Duration.ofNanos(System.nanoTime() - startedAt),
+      e != null || result == null || Objects.equals(result.content(), failureContent)
+    ));
+  }
+
+  /**
+   * The run only needs the assistant id of the prompt, the metadata is logged when it is cached and never loaded here.
+   */
+  private void logAssistant(final String logPrefix, final Operation operation, final String assistantId) {
+    var saved = assistantMetadataCache.recordSkippedRetrieve(operation, assistantId)
+      .map(latency -> "~" + latency.toMillis() + " ms")
+      .orElse("unmeasured");
+    assistantMetadataCache.getIfPresent(assistantId).ifPresentOrElse(
+      assistant -> log.info(
+        "{} Using assistant: {} (ID: {}), skipped retrieveAssistant round trip of {}",
+        logPrefix,
+        assistant.name(),
+        assistant.id(),
+        saved
+      ),
+      () -> log.info("{} Using assistant ID: {}, skipped retrieveAssistant round trip of {}", logPrefix, assistantId, saved)
+    );
+  }
+
+  @EventListener
+  public void onPromptChanged(final PromptChangedEvent event) {
+    if (Objects.nonNull(event.getAssistantId())) {
+      log.info("[Assistants] Prompt {} is changed, reloading the assistant {}", event.getName(), event.getAssistantId());
+      assistantMetadataCache.reload(event.getAssistantId());
+    } else {
+      assistantMetadataCache.invalidateAll();
+    }
+  }
+
+  /**
+   * The prompts are reloaded on startup and on the prompt changes of every node, their assistants are loaded here
+   * before the first run needs them
+   */
+  @EventListener
+  public void onPromptsRefreshed(final PromptsRefreshedEvent event) {
+    log.info("[Assistants] Prompts version {} is loaded, warming {} assistants", event.getVersion(), event.getAssistantIds().size());
+    assistantMetadataCache.warm(event.getAssistantIds());
+  }
+
+  @Override
+  public long assistantCacheSize() {
+    return assistantMetadataCache.size();
+  }
+
+  @Override
+  public CacheStats assistantCacheStats() {
+    return assistantMetadataCache.stats();
+  }
+
+  @Override
+  public Map<String, Object> assistantLatencySaved() {
+    return assistantMetadataCache.latencySaved();
+  }
+
+  /**
+   * Waits for the run on the shared poller and reads the answer of the assistant.
+   *
+   * @return content of the answer, failureContent when the run doesn't complete, emptyContent when there is no answer
+   */
+  private CompletableFuture<MessageDto> awaitRunContent(final String logPrefix,
+                                                        final String threadId,
+                                                        final ThreadRun run,
+                                                        final String failureContent,
+                                                        final String emptyContent) {
+    return runPoller.awaitTermination(run.id(), () -> runsClient.retrieveRun(threadId, run.id()))
+      .handle((retrievedRun, e) -> {
+        if (e != null) {
+          log.error("{} Run {} is not finished", logPrefix, run.id(), e);
+          return new MessageDto(failureContent);
+        }
+        if (!retrievedRun.status().equals("completed")) {
+          log.warn("{} Run failed with status: {}", logPrefix, retrievedRun.status());
+          if (retrievedRun.lastError() != null) {
+            log.error("{} Run error: {}", logPrefix, retrievedRun.lastError().message());
+          }
+          return new MessageDto(failureContent);
+        }
+
+        log.info("{} Run completed successfully, retrieving messages...", logPrefix);
+        MessagesClient.PaginatedThreadMessages paginatedMessages = messagesClient.listMessages(
+          threadId,
+          PaginationQueryParameters.none(),
+          Optional.empty()
+        );
+        List<ThreadMessage> messagesResponse = paginatedMessages.data();
+
+        if (messagesResponse.isEmpty()) {
+          log.warn("{} No messages found in thread", logPrefix);
+          return new MessageDto(emptyContent);
+        }
+
+        String content = messagesResponse.get(0)
+          .content()
+          .stream()
+          .map(cnt -> ((ThreadMessage.Content.TextContent) cnt).text().value())
+          .collect(Collectors.joining(" "));
+
+        log.info("{} Successfully generated content (length: {} characters)", logPrefix, content.length());
+        log.debug("{} Content: {}", logPrefix, content);
+        return new MessageDto(content);
+      });
+  }
+
+  /**
+   * Runs the assistant with a streamed response, the content parts go to the listener as soon as they arrive
+   * instead of waiting for the whole run to complete.
+   */
+  private MessageDto streamRun(final String logPrefix,
+                               final String threadId,
+                               final CreateRunRequest createRunRequest,
+                               final Consumer<String> contentListener,
+                               final String failureContent) {
+    var content = new StringBuilder();
+    var status = "in_progress";
     LocalDateTime startTime = LocalDateTime.now();
-    do {
-      Thread.sleep(1000);
-      pollCount++;
-      retrievedRun = runsClient.retrieveRun(thread.id(), run.id());
-      log.info("[Hint] Poll #{}, status: {}, elapsed time: {} seconds",
-        pollCount,
-        retrievedRun.status(),
-        Duration.between(startTime, LocalDateTime.now()).getSeconds()
-      );
-    } while (!retrievedRun.status().equals("completed") && !retrievedRun.status().equals("failed"));
-
-    if (!retrievedRun.status().equals("completed")) {
-      log.warn("[Hint] Run failed with status: {}", retrievedRun.status());
-      if (retrievedRun.lastError() != null) {
-        log.error("[Hint] Run error: {}", retrievedRun.lastError().message());
+
+    try (Stream<AssistantStreamEvent> events = runsClient.createRunAndStream(threadId, Optional.empty(), createRunRequest)) {
+      for (AssistantStreamEvent event : (Iterable<AssistantStreamEvent>) events::iterator) {
+        if (event.data() instanceof ThreadMessageDelta messageDelta) {
+          var delta = extractText(messageDelta);
+          if (content.isEmpty()) {
+            log.info("{} First token after {} ms", logPrefix, Duration.between(startTime, LocalDateTime.now()).toMillis());
+          }
+          content.append(delta);
+          notifyListener(logPrefix, contentListener, delta);
+        } else if (event.data() instanceof ThreadRun threadRun && event.event().startsWith("thread.run.")) {
+          status = threadRun.status();
+          if (threadRun.lastError() != null) {
+            log.error("{} Run error: {}", logPrefix, threadRun.lastError().message());
+          }
+        }
       }
-      return CompletableFuture.completedFuture(new MessageDto("AI hint generation failed."));
     }
 
-    log.info("[Hint] Run completed successfully, retrieving messages...");
-    MessagesClient.PaginatedThreadMessages paginatedMessages = messagesClient.listMessages(
-      thread.id(),
-      PaginationQueryParameters.none(),
-      Optional.empty()
+    if (!status.equals("completed")) {
+      log.warn("{} Run failed with status: {}", logPrefix, status);
+      return new MessageDto(failureContent);
+    }
+
+    log.info("{} Streamed run completed in {} ms (length: {} characters)",
+      logPrefix,
+      Duration.between(startTime, LocalDateTime.now()).toMillis(),
+      content.length()
     );
-    List<ThreadMessage> messagesResponse = paginatedMessages.data();
+    return new MessageDto(content.toString());
+  }
 
-    if (messagesResponse.isEmpty()) {
-      log.warn("[Hint] No messages found in thread");
-      return CompletableFuture.completedFuture(new MessageDto(""));
+  private static String extractText(final ThreadMessageDelta messageDelta) {
+    if (messageDelta.delta() == null || messageDelta.delta().content() == null) {
+      return "";
     }
-
-    String content = messagesResponse.get(0)
+    return messageDelta.delta()
       .content()
       .stream()
-      .map(cnt -> ((ThreadMessage.Content.TextContent) cnt).text().value())
-      .collect(Collectors.joining(" "));
+      .filter(ThreadMessageDelta.Delta.Content.TextContent.class::isInstance)
+      .map(cnt -> ((ThreadMessageDelta.Delta.Content.TextContent) cnt).text().value())
+      .filter(Objects::nonNull)
+      .collect(Collectors.joining());
+  }
 
-    log.info("[Hint] Successfully generated hint (length: {} characters)", content.length());
-    log.debug("[Hint] Hint content: {}", content);
-    return CompletableFuture.completedFuture(new MessageDto(content));
+  private static void notifyListener(final String logPrefix, final Consumer<String> contentListener, final String delta) {
+    if (delta.isEmpty()) {
+      return;
+    }
+    try {
+      contentListener.accept(delta);
+    } catch (Exception e) {
+      log.warn("{} Content listener failed: {}", logPrefix, e.getMessage());
+    }
   }
 
   @Override
@@ -501,75 +605,8 @@ public class ChatGptServiceJvmOpenAi implements ChatGptService {
     }
 
     try {
-      // Create a new thread
-      log.info("[AI Overview] Creating new thread...");
-      CreateThreadRequest createThreadRequest = CreateThreadRequest.newBuilder().build();
-      var thread = threadsClient.createThread(createThreadRequest);
-      log.info("[AI Overview] Thread created with ID: {}", thread.id());
-
-      log.info("[AI Overview] Retrieving assistant...");
-//      Assistant assistant = assistantsClient.retrieveAssistant(assistantId);
-//      log.info("[AI Overview] Retrieved assistant: {} (ID: {})", assistant.name(), assistant.id());
-
-      // Create and start a run
-      log.info("[AI Overview] Creating run with instructions...");
-      CreateRunRequest createRunRequest = CreateRunRequest.newBuilder()
-        .assistantId(assistantId)
-        .instructions(truncatedPrompt)
-        .responseFormat(AssistantsResponseFormat.responseFormat(ResponseFormat.json()))
-        .build();
-
-      ThreadRun run = runsClient.createRun(thread.id(), Optional.empty(), createRunRequest);
-      log.info("[AI Overview] Run created with ID: {} and initial status: {}", run.id(), run.status());
-
-      // Poll for completion
-      ThreadRun retrievedRun;
-      int pollCount = 0;
-      LocalDateTime startTime = LocalDateTime.now();
-      do {
-        Thread.sleep(1000); // Poll every second
-        pollCount++;
-        retrievedRun = runsClient.retrieveRun(thread.id(), run.id());
-        log.info("[AI Overview] Poll #{}, status: {}, elapsed time: {} seconds",
-          pollCount,
-          retrievedRun.status(),
-          Duration.between(startTime, LocalDateTime.now()).getSeconds()
-        );
-      } while (!retrievedRun.status().equals("completed") && !retrievedRun.status().equals("failed"));
-
-      if (!retrievedRun.status().equals("completed")) {
-        log.warn("[AI Overview] Run failed with status: {}", retrievedRun.status());
-        if (retrievedRun.lastError() != null) {
-          log.error("[AI Overview] Run error: {}", retrievedRun.lastError().message());
-        }
-        // Return null instead of error message to avoid JSON parsing issues downstream
-        return null;
-      }
-
-      // Get the response
-      log.info("[AI Overview] Run completed successfully, retrieving messages...");
-      MessagesClient.PaginatedThreadMessages paginatedMessages = messagesClient.listMessages(
-        thread.id(),
-        PaginationQueryParameters.none(),
-        Optional.empty()
-      );
-      List<ThreadMessage> messagesResponse = paginatedMessages.data();
-
-      if (messagesResponse.isEmpty()) {
-        log.warn("[AI Overview] No messages found in thread");
-        // Return null instead of error message to avoid JSON parsing issues downstream
-        return null;
-      }
-
-      String content = messagesResponse.get(0)
-        .content()
-        .stream()
-        .map(cnt -> ((ThreadMessage.Content.TextContent) cnt).text().value())
-        .collect(Collectors.joining(" "));
-
-      log.info("[AI Overview] Successfully generated overview (length: {} characters)", content.length());
-      log.debug("[AI Overview] Overview content: {}", content);
-      return content;
+      // Run the assistant and wait for completion on the shared run poller
+      return runAssistant("[AI Overview]", Operation.OVERVIEW, model, assistantId, truncatedPrompt, true, null, null, null).join().content();
 
     } catch (Exception e) {
       log.error("[AI Overview] Error generating overview", e);
@@ -0,0 +1,281 @@
+package com.backend.softtrainer.services.chatgpt;
+
+import com.backend.softtrainer.services.chatgpt.AssistantRequestDispatcher.Lane;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks the model of an assistant run per operation from the latency and the error rate observed on the runs of that
+ * operation on the model, so long summaries or overviews don't make a model look slow for hints.
+ * Interactive operations take the first of the interactive models whose latency is within the latency target and
+ * whose error rate is within the limit, batch operations the first batch model within the error rate limit; when none
+ * is, the fastest one. Once an unhealthy model wasn't used for the probe interval, a single run probes it again.
+ * Without configured models of a lane the route has no model and the run keeps the model of its assistant.
+ * Batch models whose context window is known to be smaller than the overview token budget are dropped.
+ * With interactive models configured, a hint is degraded to the template text when its expected time, the hint
+ * latency times the queue rounds ahead of it, is over the hint budget. A model without hint runs yet is expected to
+ * take the latency target. A degraded model gets a hint probe run once per probe interval to bring its latency back.
+ */
+@Slf4j
+@Component
+public class ModelRouter {
+
+  public enum Operation {
+    CLASSIFICATION(Lane.INTERACTIVE),
+    HINT(Lane.INTERACTIVE),
+    SUMMARY(Lane.INTERACTIVE),
+    OVERVIEW(Lane.BATCH);
+
+    private final Lane lane;
+
+    Operation(final Lane lane) {
+      this.lane = lane;
+    }
+
+    public Lane lane() {
+      return lane;
+    }
+  }
+
+  /**
+   * @param degraded the operation should use its template text instead of a run
+   */
+  public record Route(Operation operation, String model, boolean degraded) {
+  }
+
+  private static final double SMOOTHING = 0.2;
+
+  /**
+   * Stats of the runs on the model of their assistant, when no model is routed
+   */
+  static final String ASSISTANT_MODEL = "assistant";
+
+  /**
+   * Context windows in tokens of the models too small for some prompts, unknown models are taken as big enough
+   */
+  private static final Map<String, Integer> CONTEXT_WINDOWS = Map.of(
+    "gpt-3.5-turbo", 16_385,
+    "gpt-3.5-turbo-16k", 16_385,
+    "gpt-4", 8_192,
+    "gpt-4-32k", 32_768
+  );
+
+  private record StatsKey(Operation operation, String model) {
+  }
+
+  private static final class ModelStats {
+    private long runs;
+    private double latencyMs;
+    private double errorRate;
+    private long lastRunAt;
+    private long lastProbeAt;
+  }
+
+  private final List<String> interactiveModels;
+
+  private final List<String> batchModels;
+
+  private final Duration latencyTarget;
+
+  private final double maxErrorRate;
+
+  private final Duration hintBudget;
+
+  private final Duration probeInterval;
+
+  private final AssistantRequestDispatcher requestDispatcher;
+
+  private final Map<StatsKey, ModelStats> modelStats = new ConcurrentHashMap<>();
+
+  private final Map<Operation, Map<String, AtomicLong>> routed = new EnumMap<>(Operation.class);
+
+  private final AtomicLong degraded = new AtomicLong();
+
+  public ModelRouter(@Value("${app.openai.routing.interactive-models:}") final String[] interactiveModels,
+                     @Value("${app.openai.routing.batch-models:}") final String[] batchModels,
+                     @Value("${app.openai.routing.latency-target:8s}") final Duration latencyTarget,
+                     @Value("${app.openai.routing.max-error-rate:0.2}") final double maxErrorRate,
+                     @Value("${app.openai.routing.hint-budget:15s}") final Duration hintBudget,
+                     @Value("${app.openai.routing.probe-interval:1m}") final Duration probeInterval,
+                     @Value("${app.ai-overview.token-budget:60000}") final int overviewTokenBudget,
+                     final AssistantRequestDispatcher requestDispatcher) {
+    this.interactiveModels = models(interactiveModels);
+    this.batchModels = models(batchModels).stream()
+      .filter(model -> {
+        var contextWindow = CONTEXT_WINDOWS.get(model);
+        if (contextWindow != null && contextWindow < overviewTokenBudget) {
+          log.warn("[OpenAI] The batch model {} can't take an overview of {} tokens, its context is {} tokens, skipping it",
+            model, overviewTokenBudget, contextWindow);
+          return false;
+        }
+        return true;
+      })
+      .toList();
+    this.latencyTarget = latencyTarget;
+    this.maxErrorRate = maxErrorRate;
+    this.hintBudget = hintBudget;
+    this.probeInterval = probeInterval;
+    this.requestDispatcher = requestDispatcher;
+    for (Operation operation : Operation.values()) {
+      routed.put(operation, new ConcurrentHashMap<>());
+    }
+    log.info("[OpenAI] Routing interactive runs to {}, batch runs to {} (the model of the assistant when empty)",
+      this.interactiveModels, this.batchModels);
+  }
+
+  /**
+   * @return the route, its model is null when the run should keep the model of its assistant
+   */
+  public Route route(final Operation operation) {
+    var candidates = operation.lane() == Lane.INTERACTIVE ? interactiveModels : batchModels;
+    String model = null;
+    var probing = false;
+    for (String candidate : candidates) {
+      var key = new StatsKey(operation, candidate);
+      if (isHealthy(key) || (probing = probe(key))) {
+        model = candidate;
+        break;
+      }
+    }
+    if (model == null && !candidates.isEmpty()) {
+      model = fastest(operation, candidates);
+    }
+
+    if (operation == Operation.HINT && !interactiveModels.isEmpty()) {
+      var expectedMs = expectedMillis(model);
+      if (expectedMs > hintBudget.toMillis() && !probing && !probe(new StatsKey(operation, model))) {
+        degraded.incrementAndGet();
+        log.info("[Routing] The hint is expected to take ~{} ms on {}, over the budget of {} ms, using the template",
+          expectedMs, model, hintBudget.toMillis());
+        return new Route(operation, model, true);
+      }
+    }
+
+    routed.get(operation).computeIfAbsent(statsKey(model), key -> new AtomicLong()).incrementAndGet();
+    return new Route(operation, model, false);
+  }
+
+  /**
+   * Records a finished run of the operation on the model, null for the model of the assistant
+   */
+  public void record(final Operation operation, final String model, final Duration latency, final boolean failed) {
+    var stats = modelStats.computeIfAbsent(new StatsKey(operation, model), key -> new ModelStats());
+    synchronized (stats) {
+      var latencyMs = (double) latency.toMillis();
+      var error = failed ? 1.0 : 0.0;
+      if (stats.runs == 0) {
+        stats.latencyMs = latencyMs;
+        stats.errorRate = error;
+      } else {
+        stats.latencyMs += SMOOTHING * (latencyMs - stats.latencyMs);
+        stats.errorRate += SMOOTHING * (error - stats.errorRate);
+      }
+      stats.runs++;
+      stats.lastRunAt = System.nanoTime();
+    }
+  }
+
+  public Map<String, Object> stats() {
+    Map<String, Map<String, Object>> models = new LinkedHashMap<>();
+    modelStats.forEach((key, stats) -> {
+      synchronized (stats) {
+        models.computeIfAbsent(key.operation().name().toLowerCase(), operation -> new LinkedHashMap<>())
+          .put(statsKey(key.model()), Map.of(
+            "runs", stats.runs,
+            "latencyMs", Math.round(stats.latencyMs),
+            "errorRate", stats.errorRate
+          ));
+      }
+    });
+    Map<String, Object> routes = new LinkedHashMap<>();
+    routed.forEach((operation, counts) -> {
+      Map<String, Long> byModel = new LinkedHashMap<>();
+      counts.forEach((model, count) -> byModel.put(model, count.get()));
+      routes.put(operation.name().toLowerCase(), byModel);
+    });
+    return Map.of(
+      "models", models,
+      "routed", routes,
+      "degradedHints", degraded.get()
+    );
+  }
+
+  private boolean isHealthy(final StatsKey key) {
+    var stats = modelStats.get(key);
+    if (stats == null) {
+      return true;
+    }
+    synchronized (stats) {
+      return stats.errorRate <= maxErrorRate
+        && (key.operation().lane() == Lane.BATCH || stats.latencyMs <= latencyTarget.toMillis());
+    }
+  }
+
+  /**
+   * @return whether the caller should probe the model avoided for the operation, a single one per probe interval
+   */
+  private boolean probe(final StatsKey key) {
+    var stats = modelStats.get(key);
+    if (stats == null) {
+      return false;
+    }
+    synchronized (stats) {
+      var now = System.nanoTime();
+      if (now - Math.max(stats.lastRunAt, stats.lastProbeAt) >= probeInterval.toNanos()) {
+        // one caller probes the model, the others keep avoiding it until the probe run is recorded
+        stats.lastProbeAt = now;
+        log.info("[Routing] Probing the model {} for the {} runs", statsKey(key.model()), key.operation());
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static List<String> models(final String[] models) {
+    return Arrays.stream(models)
+      .map(String::trim)
+      .filter(model -> !model.isEmpty())
+      .toList();
+  }
+
+  private static String statsKey(final String model) {
+    return model == null ? ASSISTANT_MODEL : model;
+  }
+
+  private String fastest(final Operation operation, final List<String> candidates) {
+    var fastest = candidates.get(0);
+    for (String candidate : candidates) {
+      if (latencyMillis(operation, candidate) < latencyMillis(operation, fastest)) {
+        fastest = candidate;
+      }
+    }
+    return fastest;
+  }
+
+  private long expectedMillis(final String model) {
+    var queueRounds = Math.max(1, (requestDispatcher.interactiveQueueDepth() + requestDispatcher.maxConcurrentRuns())
+      / requestDispatcher.maxConcurrentRuns());
+    return latencyMillis(Operation.HINT, model) * queueRounds;
+  }
+
+  private long latencyMillis(final Operation operation, final String model) {
+    var stats = modelStats.get(new StatsKey(operation, model));
+    if (stats == null) {
+      return latencyTarget.toMillis();
+    }
+    synchronized (stats) {
+      return Math.round(stats.latencyMs);
+    }
+  }
+
+}
@@ -0,0 +1,37 @@
+package com.backend.softtrainer.services.chatgpt;
+
+/**
+ * Local estimate of the tokenizer tokens of a prompt, without a tokenizer library: a token per up to 4 latin letters or
+ * digits of a word, a token per any other character (punctuation, cyrillic letters), never less than a token per
+ * 4 characters. It rather overestimates, so budgets based on it hold.
+ */
+public final class TokenEstimator {
+
+  public static final int CHARS_PER_TOKEN = 4;
+
+  private TokenEstimator() {
+  }
+
+  public static int estimate(final String text) {
+    if (text == null) {
+      return 0;
+    }
+    var tokens = 0;
+    var wordLength = 0;
+    for (int i = 0; i < text.length(); i++) {
+      var ch = text.charAt(i);
+      if (ch < 128 && Character.isLetterOrDigit(ch)) {
+        wordLength++;
+        continue;
+      }
+      tokens += (wordLength + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+      wordLength = 0;
+      if (!Character.isWhitespace(ch)) {
+        tokens++;
+      }
+    }
+    tokens += (wordLength + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    return Math.max(tokens, (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN);
+  }
+
+}
@@ -0,0 +1,67 @@
+package com.backend.softtrainer.services.flow;
+
+import com.backend.softtrainer.entities.enums.MessageType;
+import com.backend.softtrainer.entities.flow.FlowNode;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable in-memory view of the flow of one simulation.
+ * Nodes are grouped by previous order number, so walking the flow doesn't need to query the nodes table per hop.
+ */
+public final class CompiledSimulationGraph {
+
+  private final Long simulationId;
+
+  private final Map<Long, List<FlowNode>> nodesByPreviousOrderNumber;
+
+  private CompiledSimulationGraph(final Long simulationId, final Map<Long, List<FlowNode>> nodesByPreviousOrderNumber) {
+    this.simulationId = simulationId;
+    this.nodesByPreviousOrderNumber = nodesByPreviousOrderNumber;
+  }
+
+  public static CompiledSimulationGraph compile(final Long simulationId, final List<FlowNode> nodes) {
+    Map<Long, List<FlowNode>> adjacency = nodes.stream()
+      .collect(Collectors.groupingBy(
+        FlowNode::getPreviousOrderNumber,
+        HashMap::new,
+        Collectors.collectingAndThen(
+          Collectors.toList(),
+          successors -> successors.stream()
+            .sorted(Comparator.comparing(FlowNode::getOrderNumber))
+            .toList()
+        )
+      ));
+
+    return new CompiledSimulationGraph(simulationId, Map.copyOf(adjacency));
+  }
+
+  public Long getSimulationId() {
+    return simulationId;
+  }
+
+  /**
+   * @return nodes which follow the node with the given order number, ordered by their own order number
+   */
+  public List<FlowNode> findAllByPreviousOrderNumber(final long previousOrderNumber) {
+    return nodesByPreviousOrderNumber.getOrDefault(previousOrderNumber, Collections.emptyList());
+  }
+
+  public Optional<FlowNode> findFollowingHintNode(final long orderNumber) {
+    return findAllByPreviousOrderNumber(orderNumber)
+      .stream()
+      .filter(node -> node.getMessageType().equals(MessageType.HINT_MESSAGE))
+      .findFirst();
+  }
+
+  public boolean isLastNode(final long orderNumber) {
+    return findAllByPreviousOrderNumber(orderNumber).isEmpty();
+  }
+
+}
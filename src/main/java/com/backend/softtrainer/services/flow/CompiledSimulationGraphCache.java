@@ -0,0 +1,55 @@
+package com.backend.softtrainer.services.flow;
+
+import com.backend.softtrainer.repositories.FlowRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compiled flow graphs of the simulations being played. The graphs of the simulations nobody plays anymore are
+ * dropped by size, a graph dropped too early is compiled again from the db.
+ */
+@Slf4j
+@Component
+public class CompiledSimulationGraphCache {
+
+  private final FlowRepository flowRepository;
+
+  private final Cache<Long, CompiledSimulationGraph> graphs;
+
+  public CompiledSimulationGraphCache(final FlowRepository flowRepository,
+                                      @Value("${app.flow-graph-cache.max-entries:500}") final long maxEntries) {
+    this.flowRepository = flowRepository;
+    this.graphs = Caffeine.newBuilder()
+      .maximumSize(maxEntries)
+      .recordStats()
+      .build();
+  }
+
+  public CompiledSimulationGraph get(final Long simulationId) {
+    return graphs.get(simulationId, id -> {
+      var nodes = flowRepository.findAllBySimulationIdWithCharacters(id);
+      log.info("Compiled the flow graph of simulation {} from {} nodes", id, nodes.size());
+      return CompiledSimulationGraph.compile(id, nodes);
+    });
+  }
+
+  public void evict(final Long simulationId) {
+    if (graphs.asMap().remove(simulationId) != null) {
+      log.info("The compiled flow graph of simulation {} is evicted", simulationId);
+    }
+  }
+
+  public long size() {
+    graphs.cleanUp();
+    return graphs.estimatedSize();
+  }
+
+  public CacheStats stats() {
+    return graphs.stats();
+  }
+
+}
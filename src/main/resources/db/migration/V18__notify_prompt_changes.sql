@@ -0,0 +1,15 @@
+-- Notify the application nodes about prompt changes, so their in-memory prompt registry is reloaded
+-- The payload is the id of the changed prompt
+
+CREATE OR REPLACE FUNCTION notify_prompts_changed() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('prompts_changed', COALESCE(NEW.id, OLD.id)::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS prompts_changed_trigger ON prompts;
+
+CREATE TRIGGER prompts_changed_trigger
+    AFTER INSERT OR UPDATE OR DELETE ON prompts
+    FOR EACH ROW EXECUTE FUNCTION notify_prompts_changed();
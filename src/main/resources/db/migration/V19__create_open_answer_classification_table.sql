@@ -0,0 +1,14 @@
+-- Classifications of the open answers, reused for the same answer to the same question instead of asking the ai again
+CREATE TABLE open_answer_classification (
+    id BIGSERIAL PRIMARY KEY,
+    flow_node_id BIGINT NOT NULL,
+    options_hash VARCHAR(64) NOT NULL,
+    answer_hash VARCHAR(64) NOT NULL,
+    normalized_answer VARCHAR(2000) NOT NULL,
+    prompt_id BIGINT,
+    response TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE UNIQUE INDEX idx_open_answer_classification_key
+    ON open_answer_classification(flow_node_id, options_hash, answer_hash);
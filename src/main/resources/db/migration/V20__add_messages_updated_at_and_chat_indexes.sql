@@ -0,0 +1,8 @@
+-- Incremental chat history: a client loads only the messages created or changed since its cursor
+ALTER TABLE messages
+ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP(6);
+
+UPDATE messages SET updated_at = timestamp WHERE updated_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_messages_chat_id_timestamp ON messages(chat_id, timestamp);
+CREATE INDEX IF NOT EXISTS idx_messages_chat_id_updated_at ON messages(chat_id, updated_at);
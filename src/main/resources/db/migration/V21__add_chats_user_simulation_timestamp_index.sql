@@ -0,0 +1,2 @@
+-- Latest chat of a user on a simulation, picked in the db with ORDER BY timestamp DESC LIMIT 1
+CREATE INDEX IF NOT EXISTS idx_chats_user_id_simulation_id_timestamp ON chats(user_id, simulation_id, timestamp);
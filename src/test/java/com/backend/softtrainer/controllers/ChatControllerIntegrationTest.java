@@ -0,0 +1,108 @@
+package com.backend.softtrainer.controllers;
+
+import com.backend.softtrainer.entities.Chat;
+import com.backend.softtrainer.repositories.ContentVersionRepository;
+import com.backend.softtrainer.services.ChatService;
+import com.backend.softtrainer.services.auth.CustomUsrDetailsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser
+public class ChatControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ChatService chatService;
+
+    @MockBean
+    private CustomUsrDetailsService customUsrDetailsService;
+
+    @MockBean
+    private ContentVersionRepository contentVersionRepository;
+
+    @BeforeEach
+    public void setUp() {
+        when(customUsrDetailsService.isChatOfUser(any(), eq(1L))).thenReturn(true);
+        when(chatService.findChat(1L)).thenReturn(Optional.of(Chat.builder().id(1L).hearts(3.0).build()));
+        when(chatService.findMessages(eq(1L), any())).thenReturn(List.of());
+    }
+
+    @Test
+    public void testGetChatByIdNotModified() throws Exception {
+        when(contentVersionRepository.chatVersion(1L)).thenReturn(Optional.of("v1"));
+
+        mockMvc.perform(get("/chats/get/by")
+                        .param("chatId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(header().string("ETag", "\"v1\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+
+        mockMvc.perform(get("/chats/get/by")
+                        .param("chatId", "1")
+                        .header("If-None-Match", "\"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+
+        verify(chatService).findChat(1L);
+    }
+
+    @Test
+    public void testGetChatByIdChangedMessages() throws Exception {
+        when(contentVersionRepository.chatVersion(1L)).thenReturn(Optional.of("v2"));
+
+        mockMvc.perform(get("/chats/get/by")
+                        .param("chatId", "1")
+                        .header("If-None-Match", "\"v1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v2\""));
+    }
+
+    @Test
+    public void testGetChatByIdSinceHasItsOwnETag() throws Exception {
+        when(contentVersionRepository.chatVersion(1L)).thenReturn(Optional.of("v1"));
+
+        mockMvc.perform(get("/chats/get/by")
+                        .param("chatId", "1")
+                        .param("since", "2024-05-01T10:00:00")
+                        .header("If-None-Match", "\"v1\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testGetChatByIdNotModifiedSkipsTheChat() throws Exception {
+        when(contentVersionRepository.chatVersion(1L)).thenReturn(Optional.of("v1"));
+
+        mockMvc.perform(get("/chats/get/by")
+                        .param("chatId", "1")
+                        .header("If-None-Match", "\"v1\""))
+                .andExpect(status().isNotModified());
+
+        verify(chatService, never()).findChat(any());
+    }
+}
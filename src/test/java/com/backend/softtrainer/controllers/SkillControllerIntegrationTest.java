@@ -1,5 +1,6 @@
 package com.backend.softtrainer.controllers;
 
+import com.backend.softtrainer.repositories.ContentVersionRepository;
 import com.backend.softtrainer.services.SkillService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,10 +13,14 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.HashSet;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -31,6 +36,9 @@ public class SkillControllerIntegrationTest {
     @MockBean
     private SkillService skillService;
 
+    @MockBean
+    private ContentVersionRepository contentVersionRepository;
+
     @Test
     public void testGetSkillsAvailable() throws Exception {
         when(skillService.getAvailableSkill(any())).thenReturn(new HashSet<>());
@@ -49,4 +57,38 @@ public class SkillControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true));
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testGetSkillsAvailableNotModified() throws Exception {
+        when(contentVersionRepository.availableSkillsVersion(any())).thenReturn(Optional.of("v1"));
+        when(skillService.getAvailableSkill(any())).thenReturn(new HashSet<>());
+
+        mockMvc.perform(get("/skills/available"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v1\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+
+        mockMvc.perform(get("/skills/available")
+                        .header("If-None-Match", "\"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+
+        when(contentVersionRepository.availableSkillsVersion(any())).thenReturn(Optional.of("v2"));
+        mockMvc.perform(get("/skills/available")
+                        .header("If-None-Match", "\"v1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v2\""));
+    }
+
+    @Test
+    public void testGetAllSimulationsNotModified() throws Exception {
+        when(contentVersionRepository.skillSimulationsVersion(any(), any())).thenReturn(Optional.of("v1"));
+
+        mockMvc.perform(get("/skills/simulations")
+                        .param("skillId", "1")
+                        .header("If-None-Match", "\"v1\""))
+                .andExpect(status().isNotModified());
+
+        verify(skillService, never()).findSimulationsBySkill(any(), any());
+    }
+}
@@ -0,0 +1,94 @@
+package com.backend.softtrainer.entities.messages;
+
+import com.backend.softtrainer.services.MessageClock;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageTimestampTest {
+
+  @Test
+  void messagesOfOneBatchKeepTheirOrder() {
+    List<Message> batch = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      var message = Message.builder().id(String.valueOf(i)).build();
+      message.assignTimestamp();
+      batch.add(message);
+    }
+
+    for (int i = 1; i < batch.size(); i++) {
+      var previous = batch.get(i - 1).getTimestamp();
+      var current = batch.get(i).getTimestamp();
+      assertTrue(current.isAfter(previous), "message " + i + " is not after the previous one");
+      assertEquals(current, current.truncatedTo(ChronoUnit.MICROS));
+    }
+  }
+
+  @Test
+  void alreadyAssignedTimestampIsKept() {
+    var timestamp = LocalDateTime.of(2024, 1, 1, 12, 0);
+    var message = Message.builder().id("1").timestamp(timestamp).build();
+
+    message.assignTimestamp();
+
+    assertEquals(timestamp, message.getTimestamp());
+  }
+
+  @Test
+  void updatedAtStartsAtTheTimestampAndMovesOnEveryUpdate() {
+    var message = Message.builder().id("1").build();
+    message.assignTimestamp();
+    assertEquals(message.getTimestamp(), message.getUpdatedAt());
+
+    message.assignUpdatedAt();
+    var firstUpdate = message.getUpdatedAt();
+    assertTrue(firstUpdate.isAfter(message.getTimestamp()));
+
+    message.assignUpdatedAt();
+    assertTrue(message.getUpdatedAt().isAfter(firstUpdate));
+  }
+
+  @Test
+  void timestampsFollowTheDatabaseClockAndNeverMoveBack() {
+    try {
+      Message.alignClock(LocalDateTime.now().plusSeconds(2));
+      var ahead = Message.nextTimestamp();
+      assertTrue(ahead.isAfter(LocalDateTime.now().plusSeconds(1)), "timestamp does not follow the database clock");
+
+      Message.alignClock(LocalDateTime.now());
+      assertTrue(Message.nextTimestamp().isAfter(ahead), "timestamp moved back with the clock");
+    } finally {
+      Message.alignClock(LocalDateTime.now());
+    }
+  }
+
+  @Test
+  void clockSyncKeepsTheOffsetWhenTheDatabaseFails() {
+    var jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.queryForObject(anyString(), eq(LocalDateTime.class)))
+      .thenReturn(LocalDateTime.now().plusSeconds(2))
+      .thenThrow(new CannotGetJdbcConnectionException("db is down"));
+    var clock = new MessageClock(jdbcTemplate);
+    try {
+      clock.sync();
+      clock.sync();
+
+      assertTrue(Message.nextTimestamp().isAfter(LocalDateTime.now().plusSeconds(1)), "offset is lost");
+    } finally {
+      Message.alignClock(LocalDateTime.now());
+    }
+  }
+
+}
@@ -0,0 +1,63 @@
+package com.backend.softtrainer.interpreter;
+
+import com.backend.softtrainer.entities.enums.MessageType;
+import com.backend.softtrainer.entities.flow.FlowNode;
+import com.backend.softtrainer.entities.flow.Text;
+import com.backend.softtrainer.entities.messages.Message;
+import com.backend.softtrainer.entities.messages.TextMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatMessageSnapshotTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+  @Test
+  void latestMessagePerOrderNumberIsReturned() {
+    var first = message("first", 1L, NOW);
+    var retried = message("retried", 1L, NOW.plusSeconds(5));
+    var other = message("other", 2L, NOW.plusSeconds(1));
+
+    var snapshot = ChatMessageSnapshot.of(3L, List.of(retried, other, first));
+
+    assertEquals(3L, snapshot.getChatId());
+    assertEquals("retried", snapshot.findLatestByOrderNumber(1L).orElseThrow().getId());
+    assertEquals("other", snapshot.findLatestByOrderNumber(2L).orElseThrow().getId());
+    assertTrue(snapshot.findLatestByOrderNumber(4L).isEmpty());
+  }
+
+  @Test
+  void storedMessageReplacesTheLoadedOneUnlessItIsOlder() {
+    var snapshot = ChatMessageSnapshot.of(3L, List.of(message("loaded", 1L, NOW)));
+
+    snapshot.add(message("older", 1L, NOW.minusSeconds(1)));
+    assertEquals("loaded", snapshot.findLatestByOrderNumber(1L).orElseThrow().getId());
+
+    snapshot.add(message("stored", 1L, null));
+    assertEquals("loaded", snapshot.findLatestByOrderNumber(1L).orElseThrow().getId());
+
+    snapshot.add(message("newer", 1L, NOW.plusSeconds(1)));
+    assertEquals("newer", snapshot.findLatestByOrderNumber(1L).orElseThrow().getId());
+  }
+
+  @Test
+  void messagesWithoutFlowNodeAreSkipped() {
+    var snapshot = ChatMessageSnapshot.of(3L, List.of());
+
+    snapshot.add(null);
+    snapshot.add(TextMessage.builder().id("no node").timestamp(NOW).build());
+
+    assertTrue(snapshot.findLatestByOrderNumber(0L).isEmpty());
+  }
+
+  private static Message message(final String id, final long orderNumber, final LocalDateTime timestamp) {
+    FlowNode flowNode = Text.builder().id(orderNumber).orderNumber(orderNumber).messageType(MessageType.TEXT).build();
+    return TextMessage.builder().id(id).flowNode(flowNode).timestamp(timestamp).build();
+  }
+
+}
@@ -0,0 +1,108 @@
+package com.backend.softtrainer.interpreter;
+
+import com.oruel.conditionscript.Message;
+import com.oruel.conditionscript.MessageType;
+import com.oruel.conditionscript.Option;
+import com.oruel.conditionscript.libs.MessageManagerLib;
+import com.oruel.conditionscript.script.ConditionScriptRunnerKt;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConditionScriptEnginePoolTest {
+
+  private static final int PARALLEL_CHATS = 64;
+
+  private static final int ROUNDS_PER_CHAT = 20;
+
+  private static final List<String> PREDICATES = List.of(
+    "message whereId \"3\" and message.anyCorrect[]",
+    "message whereId \"3\" and message.allCorrect[]",
+    "message whereId \"3\" and message.anyCorrect[].not[]",
+    "message whereId \"3\" and (message.selected[] == [1] or message.selected[] == [3])"
+  );
+
+  @Test
+  void parallelChatsGetTheSameResultsAsSequentialEvaluation() throws Exception {
+    var cache = new ConditionScriptPredicateCache(100);
+    var pool = new ConditionScriptEnginePool();
+
+    var expected = new ArrayList<List<Boolean>>();
+    for (int chat = 0; chat < PARALLEL_CHATS; chat++) {
+      var lib = chatLib(chat);
+      var results = new ArrayList<Boolean>();
+      for (String predicate : PREDICATES) {
+        var runner = ConditionScriptRunnerKt.ConditionScriptRunner();
+        runner.loadLib(lib.getLib());
+        results.add(runner.runPredicate(predicate));
+      }
+      expected.add(results);
+    }
+    //the chats have to disagree, otherwise a race between them couldn't be noticed
+    assertTrue(expected.stream().distinct().count() > 1);
+
+    var executor = Executors.newFixedThreadPool(PARALLEL_CHATS);
+    var start = new CountDownLatch(1);
+    try {
+      var futures = new ArrayList<Future<List<List<Boolean>>>>();
+      for (int chat = 0; chat < PARALLEL_CHATS; chat++) {
+        var lib = chatLib(chat);
+        Callable<List<List<Boolean>>> chatTask = () -> {
+          start.await();
+          var rounds = new ArrayList<List<Boolean>>();
+          for (int round = 0; round < ROUNDS_PER_CHAT; round++) {
+            var results = new ArrayList<Boolean>();
+            for (int i = 0; i < PREDICATES.size(); i++) {
+              var predicate = cache.getOrCompile((long) i, PREDICATES.get(i));
+              results.add(pool.evaluate(predicate, lib.getLib()));
+            }
+            rounds.add(results);
+          }
+          return rounds;
+        };
+        futures.add(executor.submit(chatTask));
+      }
+      start.countDown();
+
+      for (int chat = 0; chat < PARALLEL_CHATS; chat++) {
+        for (List<Boolean> round : futures.get(chat).get(2, TimeUnit.MINUTES)) {
+          assertEquals(expected.get(chat), round, "chat " + chat);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(PREDICATES.size(), cache.size());
+  }
+
+  /**
+   * Options "g||h||k" with the first two correct, every chat selects its own combination of options.
+   */
+  private static MessageManagerLib chatLib(final int chat) {
+    var selection = chat % 7 + 1;
+    var message = new Message(
+      "3",
+      MessageType.MultiChoiceTask,
+      List.of(
+        new Option("g", true, (selection & 1) != 0),
+        new Option("h", true, (selection & 2) != 0),
+        new Option("k", false, (selection & 4) != 0)
+      )
+    );
+    return new MessageManagerLib(
+      orderNumber -> message,
+      key -> 0.0,
+      (key, value) -> true
+    );
+  }
+
+}
@@ -0,0 +1,75 @@
+package com.backend.softtrainer.interpreter;
+
+import com.oruel.conditionscript.script.ConditionScriptRunnerKt;
+import com.oruel.conditionscript.script.ConditionScriptScriptEngine;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConditionScriptPredicateCacheTest {
+
+  private static final List<String> PREDICATES = List.of(
+    "message whereId \"3\" and message.anyCorrect[]",
+    "message whereId \"3\" and message.anyCorrect[].not[]",
+    "message1 whereId \"3\" and message1.selected[] == [3] or message1.selected[] == [1 ,3]"
+  );
+
+  @Test
+  void cachedPredicateGivesTheSameResultAsParsingEveryTime() {
+    var lib = PredicateEvaluationBenchmark.multiChoiceAnswerLib();
+    var runner = ConditionScriptRunnerKt.ConditionScriptRunner();
+    var engine = new ConditionScriptScriptEngine();
+    var cache = new ConditionScriptPredicateCache(100);
+
+    for (int i = 0; i < PREDICATES.size(); i++) {
+      var predicate = PREDICATES.get(i);
+      runner.resetLibs();
+      runner.loadLib(lib.getLib());
+      var expected = runner.runPredicate(predicate);
+
+      //evaluate twice to make sure nothing from the previous evaluation leaks into the next one
+      assertEquals(expected, cache.getOrCompile((long) i, predicate).evaluate(engine, lib.getLib()), predicate);
+      assertEquals(expected, cache.getOrCompile((long) i, predicate).evaluate(engine, lib.getLib()), predicate);
+    }
+  }
+
+  @Test
+  void predicateIsCompiledOncePerFlowNode() {
+    var cache = new ConditionScriptPredicateCache(100);
+
+    var first = cache.getOrCompile(1L, PREDICATES.get(0));
+
+    assertSame(first, cache.getOrCompile(1L, PREDICATES.get(0)));
+    assertNotSame(first, cache.getOrCompile(1L, PREDICATES.get(1)));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void predicatesOfAReplacedFlowAreEvicted() {
+    var cache = new ConditionScriptPredicateCache(100);
+    var replaced = cache.getOrCompile(1L, PREDICATES.get(0));
+    var kept = cache.getOrCompile(2L, PREDICATES.get(0));
+
+    cache.evict(List.of(1L, 3L));
+
+    assertEquals(1, cache.size());
+    assertSame(kept, cache.getOrCompile(2L, PREDICATES.get(0)));
+    assertNotSame(replaced, cache.getOrCompile(1L, PREDICATES.get(0)));
+  }
+
+  @Test
+  void cacheIsBoundedBySize() {
+    var cache = new ConditionScriptPredicateCache(10);
+    for (long flowNodeId = 0; flowNodeId < 100; flowNodeId++) {
+      cache.getOrCompile(flowNodeId, PREDICATES.get(0));
+    }
+
+    assertTrue(cache.size() <= 10);
+  }
+
+}
@@ -0,0 +1,106 @@
+package com.backend.softtrainer.interpreter;
+
+import com.oruel.conditionscript.Message;
+import com.oruel.conditionscript.MessageType;
+import com.oruel.conditionscript.Option;
+import com.oruel.conditionscript.libs.MessageManagerLib;
+import com.oruel.conditionscript.script.ConditionScriptRunnerKt;
+import com.oruel.conditionscript.script.ConditionScriptScriptEngine;
+import com.oruel.scriptforge.Runner;
+import com.oruel.scriptforge.engine.AstEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing the show predicate on every evaluation (the old InputMessageService behaviour)
+ * with evaluating the AST kept in {@link ConditionScriptPredicateCache}. Predicates are the ones from RunnerTest,
+ * written with the current `[]` call syntax.
+ * Run with `gradle jmh --args='PredicateEvaluationBenchmark'`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredicateEvaluationBenchmark {
+
+  @Param({
+    "message whereId \"3\" and message.anyCorrect[]",
+    "message whereId \"3\" and message.anyCorrect[].not[]",
+    "message1 whereId \"3\" and message1.selected[] == [3] or message1.selected[] == [1 ,3]"
+  })
+  public String predicate;
+
+  private MessageManagerLib messageManagerLib;
+
+  private Runner runner;
+
+  private AstEngine engine;
+
+  private ConditionScriptPredicateCache predicateCache;
+
+  @Setup
+  public void setUp() {
+    messageManagerLib = multiChoiceAnswerLib();
+    runner = ConditionScriptRunnerKt.ConditionScriptRunner();
+    engine = new ConditionScriptScriptEngine();
+    predicateCache = new ConditionScriptPredicateCache(100);
+    predicateCache.getOrCompile(1L, predicate);
+  }
+
+  @Benchmark
+  public boolean parseEveryTime() {
+    runner.resetLibs();
+    runner.loadLib(messageManagerLib.getLib());
+    return runner.runPredicate(predicate);
+  }
+
+  @Benchmark
+  public boolean cachedAst() {
+    return predicateCache.getOrCompile(1L, predicate).evaluate(engine, messageManagerLib.getLib());
+  }
+
+  /**
+   * Same answer as in RunnerTest: options "g||h||k", correct "1||2", the user selected "g||k".
+   */
+  static MessageManagerLib multiChoiceAnswerLib() {
+    var message = new Message(
+      "3",
+      MessageType.MultiChoiceTask,
+      List.of(
+        new Option("g", true, true),
+        new Option("h", true, false),
+        new Option("k", false, true)
+      )
+    );
+    return new MessageManagerLib(
+      orderNumber -> message,
+      key -> 0.0,
+      (key, value) -> true
+    );
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new org.openjdk.jmh.runner.Runner(
+      new OptionsBuilder()
+        .include(PredicateEvaluationBenchmark.class.getSimpleName())
+        .build()
+    ).run();
+  }
+
+}
@@ -0,0 +1,235 @@
+package com.backend.softtrainer.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in of the OpenAI Assistants endpoints used by ChatGptServiceJvmOpenAi: create thread, create run,
+ * retrieve run, list messages and retrieve assistant. A run stays in progress for a log-normally distributed time
+ * and then completes, or fails with the configured rate. Runs asking for a json response answer with a
+ * classification, the others with a text.
+ * Streamed runs are not supported, the service has to poll (app.openai.streaming=false).
+ * Point the app to it with SOFT_TRAINER_OPENAI_BASE_URL={@link #baseUrl()}.
+ */
+public class FakeOpenAiServer implements AutoCloseable {
+
+  private static final Pattern RUNS = Pattern.compile("/v1/threads/([^/]+)/runs");
+
+  private static final Pattern RUN = Pattern.compile("/v1/threads/([^/]+)/runs/([^/]+)");
+
+  private static final Pattern MESSAGES = Pattern.compile("/v1/threads/([^/]+)/messages");
+
+  private static final Pattern ASSISTANT = Pattern.compile("/v1/assistants/([^/]+)");
+
+  private static final String CLASSIFICATION = "{\"index\": -1, \"option\": \"\", \"reason\": \"Answered by the fake server\"}";
+
+  /**
+   * @param medianLatency median time a run takes
+   * @param latencySigma  sigma of the log-normal distribution, 0 for a constant latency
+   * @param failureRate   share of the runs which end with the failed status
+   */
+  public record Settings(Duration medianLatency, double latencySigma, double failureRate) {
+  }
+
+  private record Run(String id, String threadId, long startedAt, long latencyNanos, boolean fails, boolean json) {
+  }
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final Settings settings;
+
+  private final HttpServer server;
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  private final Map<String, Run> runs = new ConcurrentHashMap<>();
+
+  private final Map<String, Run> lastRunByThread = new ConcurrentHashMap<>();
+
+  private final Set<String> finishedRuns = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong ids = new AtomicLong();
+
+  private final AtomicLong requests = new AtomicLong();
+
+  private final AtomicInteger activeRuns = new AtomicInteger();
+
+  private final AtomicInteger maxActiveRuns = new AtomicInteger();
+
+  private volatile int runRejectionStatus;
+
+  public FakeOpenAiServer(final Settings settings) throws IOException {
+    this.settings = settings;
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    this.server.createContext("/v1/", this::handle);
+    this.server.setExecutor(executor);
+    this.server.start();
+  }
+
+  public String baseUrl() {
+    return "http://localhost:" + server.getAddress().getPort() + "/v1/";
+  }
+
+  public long requests() {
+    return requests.get();
+  }
+
+  public int maxActiveRuns() {
+    return maxActiveRuns.get();
+  }
+
+  /**
+   * Answers every following create run request with the given error status, 0 accepts the runs again
+   */
+  public void rejectRuns(final int status) {
+    this.runRejectionStatus = status;
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(final HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    try {
+      var path = exchange.getRequestURI().getPath();
+      var post = "POST".equals(exchange.getRequestMethod());
+      Matcher matcher;
+
+      if (post && path.equals("/v1/threads")) {
+        respond(exchange, 200, Map.of("id", "thread_" + ids.incrementAndGet(), "object", "thread",
+          "created_at", now(), "metadata", Map.of()));
+      } else if (post && (matcher = match(RUNS, path)) != null) {
+        createRun(exchange, matcher.group(1));
+      } else if ((matcher = match(RUN, path)) != null) {
+        var run = runs.get(matcher.group(2));
+        if (run == null) {
+          respond(exchange, 404, error("No run found with id " + matcher.group(2)));
+        } else {
+          respond(exchange, 200, runJson(run));
+        }
+      } else if ((matcher = match(MESSAGES, path)) != null) {
+        respond(exchange, 200, messages(matcher.group(1)));
+      } else if ((matcher = match(ASSISTANT, path)) != null) {
+        respond(exchange, 200, Map.of("id", matcher.group(1), "object", "assistant", "created_at", now(),
+          "name", "Fake assistant", "model", "gpt-4o-mini", "tools", List.of(), "metadata", Map.of()));
+      } else {
+        respond(exchange, 404, error("Unknown endpoint " + path));
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void createRun(final HttpExchange exchange, final String threadId) throws IOException {
+    JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+    if (runRejectionStatus != 0) {
+      respond(exchange, runRejectionStatus, error("Run rejected by the fake server"));
+      return;
+    }
+    if (request.path("stream").asBoolean(false)) {
+      respond(exchange, 400, error("Streamed runs are not supported by the fake server"));
+      return;
+    }
+    var random = ThreadLocalRandom.current();
+    var latency = settings.medianLatency().toNanos() * Math.exp(settings.latencySigma() * random.nextGaussian());
+    var run = new Run(
+      "run_" + ids.incrementAndGet(),
+      threadId,
+      System.nanoTime(),
+      (long) latency,
+      random.nextDouble() < settings.failureRate(),
+      request.path("response_format").toString().contains("json")
+    );
+    runs.put(run.id(), run);
+    lastRunByThread.put(threadId, run);
+    maxActiveRuns.accumulateAndGet(activeRuns.incrementAndGet(), Math::max);
+    respond(exchange, 200, runJson(run));
+  }
+
+  private Map<String, Object> runJson(final Run run) {
+    var status = "in_progress";
+    if (System.nanoTime() - run.startedAt() >= run.latencyNanos()) {
+      status = run.fails() ? "failed" : "completed";
+      if (finishedRuns.add(run.id())) {
+        activeRuns.decrementAndGet();
+      }
+    }
+    var json = new HashMap<String, Object>(Map.of(
+      "id", run.id(),
+      "object", "thread.run",
+      "created_at", now(),
+      "thread_id", run.threadId(),
+      "assistant_id", "asst_fake",
+      "status", status,
+      "model", "gpt-4o-mini",
+      "tools", List.of(),
+      "metadata", Map.of()
+    ));
+    if (status.equals("failed")) {
+      json.put("last_error", Map.of("code", "server_error", "message", "Failure injected by the fake server"));
+    }
+    return json;
+  }
+
+  private Map<String, Object> messages(final String threadId) {
+    var run = lastRunByThread.get(threadId);
+    var content = run != null && run.json()
+      ? CLASSIFICATION
+      : "Generated by the fake server for the thread " + threadId;
+    var message = Map.of(
+      "id", "msg_" + ids.incrementAndGet(),
+      "object", "thread.message",
+      "created_at", now(),
+      "thread_id", threadId,
+      "role", "assistant",
+      "content", List.of(Map.of("type", "text", "text", Map.of("value", content, "annotations", List.of()))),
+      "attachments", List.of(),
+      "metadata", Map.of()
+    );
+    return Map.of("object", "list", "data", List.of(message), "first_id", message.get("id"),
+      "last_id", message.get("id"), "has_more", false);
+  }
+
+  private void respond(final HttpExchange exchange, final int status, final Object body) throws IOException {
+    var bytes = objectMapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    exchange.getResponseBody().write(bytes);
+  }
+
+  private static Map<String, Object> error(final String message) {
+    return Map.of("error", Map.of("message", message, "type", "invalid_request_error"));
+  }
+
+  private static Matcher match(final Pattern pattern, final String path) {
+    var matcher = pattern.matcher(path);
+    return matcher.matches() ? matcher : null;
+  }
+
+  private static long now() {
+    return System.currentTimeMillis() / 1000;
+  }
+
+}
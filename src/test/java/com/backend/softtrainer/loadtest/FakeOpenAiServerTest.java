@@ -0,0 +1,75 @@
+package com.backend.softtrainer.loadtest;
+
+import com.backend.softtrainer.entities.PromptName;
+import com.backend.softtrainer.services.chatgpt.AssistantRequestCoalescer;
+import com.backend.softtrainer.services.chatgpt.AssistantRequestDispatcher;
+import com.backend.softtrainer.services.chatgpt.AssistantRunPoller;
+import com.backend.softtrainer.services.chatgpt.ChatGptServiceJvmOpenAi;
+import com.backend.softtrainer.services.chatgpt.ModelRouter;
+import io.github.stefanbratanov.jvm.openai.OpenAI;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FakeOpenAiServerTest {
+
+  @Test
+  void generationsCompleteAgainstTheFakeServer() throws Exception {
+    var report = runLoad(new FakeOpenAiServer.Settings(Duration.ofMillis(50), 0, 0));
+
+    assertEquals(0, report.failures());
+    assertEquals(3, report.latencies().get("classification").size());
+    assertEquals(3, report.latencies().get("hint").size());
+    assertEquals(3, report.latencies().get("summary").size());
+    assertTrue(report.percentiles("summary").get("p50") >= 50);
+  }
+
+  @Test
+  void failedRunsAreReportedAsFailures() throws Exception {
+    var report = runLoad(new FakeOpenAiServer.Settings(Duration.ofMillis(10), 0, 1));
+
+    assertEquals(9, report.failures());
+  }
+
+  @Test
+  void rejectedRunsEndWithTheFailureContent() throws Exception {
+    try (var server = new FakeOpenAiServer(new FakeOpenAiServer.Settings(Duration.ofMillis(10), 0, 0))) {
+      var poller = new AssistantRunPoller(2, Duration.ofSeconds(10));
+      try {
+        server.rejectRuns(429);
+        var hint = chatGptService(server, poller).buildAfterwardActionableHintMessage(LlmLoadTest.chat("rejected"),
+          List.of(), LlmLoadTest.prompt(PromptName.SIMULATION_MESSAGE_HINT, "%s %s %s"), Map.of(), "Feedback",
+          "onboarding", "English").get(10, TimeUnit.SECONDS);
+
+        assertEquals("AI hint generation failed.", hint.content());
+      } finally {
+        poller.shutdown();
+      }
+    }
+  }
+
+  private static LlmLoadTest.Report runLoad(final FakeOpenAiServer.Settings settings) throws Exception {
+    try (var server = new FakeOpenAiServer(settings)) {
+      var poller = new AssistantRunPoller(2, Duration.ofSeconds(10));
+      try {
+        return LlmLoadTest.run(chatGptService(server, poller), 3, 1);
+      } finally {
+        poller.shutdown();
+      }
+    }
+  }
+
+  private static ChatGptServiceJvmOpenAi chatGptService(final FakeOpenAiServer server, final AssistantRunPoller poller) {
+    var openAI = OpenAI.newBuilder("fake-key").baseUrl(server.baseUrl()).build();
+    var dispatcher = new AssistantRequestDispatcher(16, 4, 150_000, Duration.ofSeconds(20), Duration.ofMinutes(5));
+    return new ChatGptServiceJvmOpenAi(openAI, poller, new AssistantRequestCoalescer(), dispatcher,
+      LlmLoadTest.modelRouter(dispatcher));
+  }
+
+}
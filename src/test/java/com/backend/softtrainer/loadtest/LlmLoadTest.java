@@ -0,0 +1,191 @@
+package com.backend.softtrainer.loadtest;
+
+import com.backend.softtrainer.dtos.ChatDto;
+import com.backend.softtrainer.dtos.MessageDto;
+import com.backend.softtrainer.entities.Prompt;
+import com.backend.softtrainer.entities.PromptName;
+import com.backend.softtrainer.entities.enums.ChatRole;
+import com.backend.softtrainer.entities.messages.EnterTextQuestionMessage;
+import com.backend.softtrainer.entities.messages.Message;
+import com.backend.softtrainer.entities.messages.TextMessage;
+import com.backend.softtrainer.services.chatgpt.AssistantRequestCoalescer;
+import com.backend.softtrainer.services.chatgpt.AssistantRequestDispatcher;
+import com.backend.softtrainer.services.chatgpt.AssistantRunPoller;
+import com.backend.softtrainer.services.chatgpt.ChatGptServiceJvmOpenAi;
+import com.backend.softtrainer.services.chatgpt.ModelRouter;
+import io.github.stefanbratanov.jvm.openai.OpenAI;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives concurrent simulated users through the classification, hint and simulation summary generations of
+ * ChatGptServiceJvmOpenAi against {@link FakeOpenAiServer}, and reports the latency percentiles per flow and the
+ * threads used. No OpenAI quota is spent.
+ * Run with `gradle loadTest --args='users iterations medianLatencyMs latencySigma failureRate'`,
+ * e.g. `gradle loadTest --args='100 5 1500 0.5 0.02'`.
+ */
+public class LlmLoadTest {
+
+  private static final List<String> FLOWS = List.of("classification", "hint", "summary");
+
+  public static void main(final String[] args) throws Exception {
+    var users = intArg(args, 0, 50);
+    var iterations = intArg(args, 1, 5);
+    var settings = new FakeOpenAiServer.Settings(
+      Duration.ofMillis(intArg(args, 2, 1500)),
+      doubleArg(args, 3, 0.5),
+      doubleArg(args, 4, 0.02)
+    );
+
+    System.out.printf("Load test: %d users x %d iterations, %s%n", users, iterations, settings);
+    try (var server = new FakeOpenAiServer(settings)) {
+      var poller = new AssistantRunPoller(4, Duration.ofMinutes(3));
+      var openAI = OpenAI.newBuilder("fake-key").baseUrl(server.baseUrl()).requestTimeout(Duration.ofSeconds(10)).build();
+      var dispatcher = new AssistantRequestDispatcher(16, 4, 150_000, Duration.ofSeconds(20), Duration.ofMinutes(5));
+      var modelRouter = modelRouter(dispatcher);
+      var chatGptService = new ChatGptServiceJvmOpenAi(openAI, poller, new AssistantRequestCoalescer(), dispatcher,
+        modelRouter);
+
+      var report = run(chatGptService, users, iterations);
+      poller.shutdown();
+
+      report.print();
+      System.out.printf("Routing: %s%n", modelRouter.stats());
+      System.out.printf("Fake server: %d requests, max %d runs in flight%n", server.requests(), server.maxActiveRuns());
+    }
+    System.exit(0);
+  }
+
+  static ModelRouter modelRouter(final AssistantRequestDispatcher dispatcher) {
+    return new ModelRouter(new String[]{"gpt-4o-mini", "gpt-4o"}, new String[]{"gpt-4o-mini", "gpt-4o"},
+      Duration.ofSeconds(8), 0.2, Duration.ofSeconds(15), Duration.ofMinutes(1), 60_000, dispatcher);
+  }
+
+  static Report run(final ChatGptServiceJvmOpenAi chatGptService, final int users, final int iterations)
+    throws InterruptedException {
+    Map<String, List<Long>> latencies = new ConcurrentHashMap<>();
+    FLOWS.forEach(flow -> latencies.put(flow, Collections.synchronizedList(new ArrayList<>())));
+    var failures = new AtomicInteger();
+
+    var threads = ManagementFactory.getThreadMXBean();
+    threads.resetPeakThreadCount();
+    var threadsBefore = threads.getThreadCount();
+
+    var userExecutor = Executors.newFixedThreadPool(users);
+    var done = new CountDownLatch(users);
+    var startedAt = System.nanoTime();
+    for (int user = 0; user < users; user++) {
+      var userId = user;
+      userExecutor.submit(() -> {
+        try {
+          for (int iteration = 0; iteration < iterations; iteration++) {
+            var suffix = userId + "-" + iteration;
+            measure(latencies.get("classification"), failures,
+              () -> chatGptService.classifyUserAnswer(openAnswer(suffix), prompt(PromptName.OPEN_QUESTION_CLASSIFYING, "%s %s")).get());
+            measure(latencies.get("hint"), failures,
+              () -> chatGptService.buildAfterwardActionableHintMessage(chat(suffix), List.of(),
+                prompt(PromptName.SIMULATION_MESSAGE_HINT, "%s %s %s"),
+                Map.of("empathy", 1.0), "Feedback", "onboarding " + suffix, "English").get());
+            measure(latencies.get("summary"), failures,
+              () -> chatGptService.buildAfterwardSimulationRecommendation(chat(suffix),
+                prompt(PromptName.SIMULATION_SUMMARY, "%s %s %s"),
+                Map.of("empathy", 1.0), "Feedback", "onboarding " + suffix, "English").get());
+          }
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+    done.await();
+    var elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+    userExecutor.shutdown();
+    userExecutor.awaitTermination(1, TimeUnit.MINUTES);
+
+    return new Report(latencies, failures.get(), elapsed, threadsBefore, threads.getPeakThreadCount(), users);
+  }
+
+  record Report(Map<String, List<Long>> latencies, int failures, Duration elapsed, int threadsBefore, int peakThreads,
+                int userThreads) {
+
+    Map<String, Long> percentiles(final String flow) {
+      var sorted = latencies.get(flow).stream().sorted().toList();
+      Map<String, Long> percentiles = new LinkedHashMap<>();
+      for (int percentile : new int[]{50, 95, 99}) {
+        var index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        percentiles.put("p" + percentile, sorted.isEmpty() ? 0 : sorted.get(Math.max(0, index)));
+      }
+      return percentiles;
+    }
+
+    void print() {
+      System.out.printf("%-15s %8s %8s %8s %8s%n", "flow", "calls", "p50 ms", "p95 ms", "p99 ms");
+      for (String flow : FLOWS) {
+        var percentiles = percentiles(flow);
+        System.out.printf("%-15s %8d %8d %8d %8d%n", flow, latencies.get(flow).size(),
+          percentiles.get("p50"), percentiles.get("p95"), percentiles.get("p99"));
+      }
+      System.out.printf("Failed calls: %d, elapsed: %d ms%n", failures, elapsed.toMillis());
+      System.out.printf("Threads: %d before, %d at peak, %d of them simulated users%n", threadsBefore, peakThreads, userThreads);
+    }
+  }
+
+  private interface Call {
+    MessageDto call() throws Exception;
+  }
+
+  private static void measure(final List<Long> latencies, final AtomicInteger failures, final Call call) {
+    var startedAt = System.nanoTime();
+    try {
+      var response = call.call();
+      if (response == null || response.content() == null || response.content().startsWith("AI ")) {
+        failures.incrementAndGet();
+      }
+    } catch (Exception e) {
+      failures.incrementAndGet();
+    }
+    latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+  }
+
+  static Prompt prompt(final PromptName name, final String template) {
+    return Prompt.builder().id(1L).name(name).prompt(template).isOn(true).assistantId("asst_" + name.name()).build();
+  }
+
+  private static EnterTextQuestionMessage openAnswer(final String suffix) {
+    return EnterTextQuestionMessage.builder()
+      .options("Ask the manager for help||Solve the problem on my own||Ignore the problem")
+      .openAnswer("I would talk to my boss about it " + suffix)
+      .build();
+  }
+
+  static ChatDto chat(final String suffix) {
+    Set<Message> messages = Set.of(TextMessage.builder()
+      .id("message-" + suffix)
+      .timestamp(LocalDateTime.now())
+      .role(ChatRole.APP)
+      .content("How would you give feedback to your colleague? " + suffix)
+      .build());
+    return new ChatDto(messages);
+  }
+
+  private static int intArg(final String[] args, final int index, final int defaultValue) {
+    return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+  }
+
+  private static double doubleArg(final String[] args, final int index, final double defaultValue) {
+    return args.length > index ? Double.parseDouble(args[index]) : defaultValue;
+  }
+
+}
@@ -0,0 +1,108 @@
+package com.backend.softtrainer.repositories;
+
+import com.backend.softtrainer.SoftTrainerBackendApplication;
+import com.backend.softtrainer.dtos.ChatParams;
+import com.backend.softtrainer.dtos.client.UserMessageDto;
+import com.backend.softtrainer.services.ChatService;
+import com.backend.softtrainer.services.UserMessageService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rendering the chat history from the chat entity graph (chat, messages, flow nodes, simulation, skill)
+ * with rendering it from the flat rows of {@link ChatHistoryRepository}, converted on every read (projection) or
+ * once per message version (projectionCached). The rows counter gives rows/ms, the allocated bytes per load come
+ * from the gc profiler (gc.alloc.rate.norm).
+ * Needs the database of the app, e.g. `SOFT_TRAINER_BACKEND_DB_URL=localhost:5432 gradle jmh
+ * --args='ChatHistoryReadBenchmark -prof gc'`; by default the chat with the most messages is loaded, another one
+ * with `-p chatId=42`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatHistoryReadBenchmark {
+
+  @Param("0")
+  public long chatId;
+
+  private ConfigurableApplicationContext context;
+
+  private ChatService chatService;
+
+  private UserMessageService userMessageService;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Rows {
+    public long rows;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      rows = 0;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    context = new SpringApplicationBuilder(SoftTrainerBackendApplication.class)
+      .properties("server.port=0", "app.prompts.listen-notify.enabled=false")
+      .run();
+    chatService = context.getBean(ChatService.class);
+    userMessageService = context.getBean(UserMessageService.class);
+    if (chatId == 0) {
+      chatId = context.getBean(JdbcTemplate.class).queryForObject(
+        "SELECT chat_id FROM messages GROUP BY chat_id ORDER BY count(*) DESC LIMIT 1", Long.class);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<UserMessageDto> entityGraph(final Rows rows) {
+    var chat = chatService.findChatWithMessages(chatId).orElseThrow();
+    var messages = chat.getMessages().stream().toList();
+    rows.rows += messages.size();
+    return userMessageService.combineMessages(messages, new ChatParams(chat.getHearts()));
+  }
+
+  @Benchmark
+  public List<UserMessageDto> projection(final Rows rows) {
+    var chat = chatService.findChat(chatId).orElseThrow();
+    var messages = chatService.findMessages(chatId, null);
+    rows.rows += messages.size();
+    return userMessageService.combineMessages(messages, new ChatParams(chat.getHearts()));
+  }
+
+  @Benchmark
+  public List<UserMessageDto> projectionCached(final Rows rows) {
+    var chat = chatService.findChat(chatId).orElseThrow();
+    var messages = chatService.findMessages(chatId, null);
+    rows.rows += messages.size();
+    return userMessageService.combineHistory(messages, new ChatParams(chat.getHearts()));
+  }
+
+}
@@ -0,0 +1,83 @@
+package com.backend.softtrainer.repositories;
+
+import com.backend.softtrainer.entities.Chat;
+import com.backend.softtrainer.entities.enums.ChatRole;
+import com.backend.softtrainer.entities.enums.MessageType;
+import com.backend.softtrainer.entities.messages.Message;
+import com.backend.softtrainer.entities.messages.TextMessage;
+import com.backend.softtrainer.services.ChatService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class ChatHistoryRepositoryIntegrationTest {
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Test
+    public void testIncrementalLoadSinceTheCursor() {
+        var chat = chatRepository.save(Chat.builder().hearts(3.0).build());
+        var base = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        var first = store(chat, base, "First");
+        var second = store(chat, base.plusSeconds(10), "Second");
+
+        var all = chatService.findMessages(chat.getId(), null);
+        assertEquals(List.of(first.getId(), second.getId()), ids(all));
+        var cursor = ChatService.cursor(all, null);
+        assertEquals(base.plusSeconds(10), cursor);
+
+        // stamped before the cursor, committed after it
+        var late = store(chat, base.plusSeconds(8), "Late");
+
+        var changed = chatService.findMessages(chat.getId(), cursor);
+        assertEquals(List.of(late.getId(), second.getId()), ids(changed));
+
+        first.setContent("First, edited");
+        messageRepository.saveAndFlush(first);
+        assertTrue(first.getUpdatedAt().isAfter(cursor));
+        var next = store(chat, null, "Next");
+
+        changed = chatService.findMessages(chat.getId(), cursor);
+        assertEquals(List.of(first.getId(), late.getId(), second.getId(), next.getId()), ids(changed));
+        assertEquals("First, edited", ((TextMessage) changed.get(0)).getContent());
+
+        var nextCursor = ChatService.cursor(changed, cursor);
+        assertTrue(nextCursor.isAfter(cursor));
+        assertEquals(List.of(first.getId(), next.getId()), ids(chatService.findMessages(chat.getId(), nextCursor)));
+    }
+
+    private TextMessage store(final Chat chat, final LocalDateTime timestamp, final String content) {
+        return messageRepository.saveAndFlush(TextMessage.builder()
+                .id(UUID.randomUUID().toString())
+                .chat(chat)
+                .timestamp(timestamp)
+                .messageType(MessageType.TEXT)
+                .role(ChatRole.APP)
+                .content(content)
+                .build());
+    }
+
+    private static List<String> ids(final List<Message> messages) {
+        return messages.stream().map(Message::getId).toList();
+    }
+}
@@ -0,0 +1,85 @@
+package com.backend.softtrainer.repositories;
+
+import com.backend.softtrainer.dtos.ChatParams;
+import com.backend.softtrainer.dtos.client.UserSingleChoiceMessageDto;
+import com.backend.softtrainer.entities.enums.MessageType;
+import com.backend.softtrainer.entities.messages.SingleChoiceQuestionMessage;
+import com.backend.softtrainer.entities.messages.TextMessage;
+import com.backend.softtrainer.services.UserMessageService;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatHistoryRepositoryTest {
+
+  private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+  @Test
+  void rowIsMappedWithItsCharacter() throws Exception {
+    var rs = mock(ResultSet.class);
+    when(rs.getString("id")).thenReturn("m1");
+    when(rs.getString("dtype")).thenReturn("TextMessage");
+    when(rs.getObject("version", Integer.class)).thenReturn(3);
+    when(rs.getObject("timestamp", LocalDateTime.class)).thenReturn(TIMESTAMP);
+    when(rs.getObject("updated_at", LocalDateTime.class)).thenReturn(TIMESTAMP.plusSeconds(1));
+    when(rs.getString("message_type")).thenReturn("TEXT");
+    when(rs.getString("content")).thenReturn("Hello");
+    when(rs.getObject("flow_character_id", Long.class)).thenReturn(2L);
+    when(rs.getString("character_name")).thenReturn("Sam");
+    when(rs.getString("character_avatar")).thenReturn("sam.png");
+
+    var row = ChatHistoryRepository.mapRow(rs, 0);
+    var message = assertInstanceOf(TextMessage.class, row.toMessage());
+
+    assertEquals("m1", message.getId());
+    assertEquals(3, message.getVersion());
+    assertEquals(MessageType.TEXT, message.getMessageType());
+    assertEquals(TIMESTAMP.plusSeconds(1), message.getUpdatedAt());
+    assertEquals("Hello", message.getContent());
+    assertEquals("Sam", message.getCharacter().getName());
+    assertEquals(2L, message.getCharacter().getFlowCharacterId());
+    assertNull(row.responseTimeLimit());
+  }
+
+  @Test
+  void rowsRenderLikeTheEntities() {
+    var userMessageService = new UserMessageService(100);
+    var entity = SingleChoiceQuestionMessage.builder()
+      .id("q1")
+      .timestamp(TIMESTAMP)
+      .messageType(MessageType.SINGLE_CHOICE_QUESTION)
+      .options("Yes||No")
+      .correct("1")
+      .answer("Yes")
+      .responseTimeLimit(30L)
+      .build();
+    var row = new ChatHistoryRepository.MessageRow("q1", "SingleChoiceQuestionMessage", 0, TIMESTAMP, TIMESTAMP,
+      MessageType.SINGLE_CHOICE_QUESTION, 30L, null, "Yes", "Yes||No", "1", null, null, null);
+
+    var fromEntity = (UserSingleChoiceMessageDto) userMessageService
+      .combineMessages(List.of(entity), new ChatParams(3.0)).get(0);
+    var fromRow = (UserSingleChoiceMessageDto) userMessageService
+      .combineMessages(List.of(row.toMessage()), new ChatParams(3.0)).get(0);
+
+    assertEquals(fromEntity.getCorrectness(), fromRow.getCorrectness());
+    assertEquals(fromEntity.getContent(), fromRow.getContent());
+    assertEquals(fromEntity.getOptions().size(), fromRow.getOptions().size());
+  }
+
+  @Test
+  void answerMessagesAreNotRendered() {
+    var row = new ChatHistoryRepository.MessageRow("a1", "SingleChoiceAnswerMessage", 0, TIMESTAMP, TIMESTAMP,
+      MessageType.TEXT, null, null, "Yes", null, null, null, null, null);
+
+    assertNull(row.toMessage());
+  }
+
+}
@@ -0,0 +1,126 @@
+package com.backend.softtrainer.services;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AiMessageCompletionRegistryTest {
+
+  @Test
+  void waitingRequestGetsTheContentOnceItIsGenerated() throws Exception {
+    var registry = new AiMessageCompletionRegistry(Duration.ofMinutes(10), 100, Duration.ofSeconds(2));
+
+    var content = registry.await("hint");
+    assertFalse(content.isDone());
+
+    registry.complete("hint", "Tip");
+
+    assertEquals("Tip", content.get());
+  }
+
+  @Test
+  void contentGeneratedBeforeTheRequestIsNotLost() throws Exception {
+    var registry = new AiMessageCompletionRegistry(Duration.ofMinutes(10), 100, Duration.ofSeconds(2));
+
+    registry.complete("result", "Your result");
+
+    assertEquals("Your result", registry.await("result").get());
+  }
+
+  @Test
+  void requestGivingUpDoesNotFailTheOthers() throws Exception {
+    var registry = new AiMessageCompletionRegistry(Duration.ofMinutes(10), 100, Duration.ofSeconds(2));
+
+    var expired = registry.await("hint");
+    expired.cancel(false);
+
+    registry.complete("hint", "Tip");
+
+    assertEquals("Tip", registry.await("hint").get());
+  }
+
+  @Test
+  void contentStoredByAnotherNodeIsReadFromTheDb() throws Exception {
+    var registry = new AiMessageCompletionRegistry(Duration.ofMinutes(10), 100, Duration.ofMillis(10));
+    var stored = new AtomicReference<String>();
+
+    var content = registry.await("hint", () -> Optional.ofNullable(stored.get()));
+    Thread.sleep(50);
+    assertFalse(content.isDone());
+
+    stored.set("Tip");
+
+    assertEquals("Tip", content.get(5, TimeUnit.SECONDS));
+    assertEquals("Tip", registry.await("hint").getNow(null));
+  }
+
+  @Test
+  void dbIsNotReadAfterTheRetention() throws Exception {
+    var registry = new AiMessageCompletionRegistry(Duration.ofMillis(50), 100, Duration.ofMillis(10));
+    var reads = new AtomicInteger();
+
+    var content = registry.await("hint", () -> {
+      reads.incrementAndGet();
+      return Optional.empty();
+    });
+
+    assertThrows(CancellationException.class, () -> content.get(5, TimeUnit.SECONDS));
+    var readsAtTheDeadline = reads.get();
+    Thread.sleep(50);
+    assertEquals(readsAtTheDeadline, reads.get());
+  }
+
+  @Test
+  void dbIsNotReadAfterTheWaitIsCancelled() throws Exception {
+    var registry = new AiMessageCompletionRegistry(Duration.ofMinutes(10), 100, Duration.ofMillis(10));
+    var reads = new AtomicInteger();
+
+    var content = registry.await("hint", () -> {
+      reads.incrementAndGet();
+      return Optional.empty();
+    });
+    Thread.sleep(50);
+    content.cancel(false);
+    Thread.sleep(20);
+
+    var readsAtTheCancel = reads.get();
+    assertTrue(readsAtTheCancel > 0);
+    Thread.sleep(50);
+    assertEquals(readsAtTheCancel, reads.get());
+  }
+
+  @Test
+  void expiredEntriesAreEvicted() {
+    var time = new AtomicLong();
+    var registry = new AiMessageCompletionRegistry(Duration.ofMinutes(10), 100, Duration.ofSeconds(2), time::get);
+    registry.complete("hint", "Tip");
+
+    time.addAndGet(Duration.ofMinutes(11).toNanos());
+
+    assertEquals(0, registry.size());
+    assertEquals(1, registry.stats().evictionCount());
+  }
+
+  @Test
+  void registryIsBoundedBySize() {
+    var registry = new AiMessageCompletionRegistry(Duration.ofMinutes(10), 100, Duration.ofSeconds(2), Ticker.systemTicker());
+    for (int i = 0; i < 1_000; i++) {
+      registry.complete("hint-" + i, "Tip");
+    }
+
+    assertTrue(registry.size() <= 100);
+  }
+
+}
@@ -0,0 +1,217 @@
+package com.backend.softtrainer.services;
+
+import com.backend.softtrainer.dtos.messages.SingleChoiceAnswerMessageDto;
+import com.backend.softtrainer.entities.Chat;
+import com.backend.softtrainer.entities.Simulation;
+import com.backend.softtrainer.entities.enums.MessageType;
+import com.backend.softtrainer.entities.flow.FlowNode;
+import com.backend.softtrainer.entities.flow.SingleChoiceQuestion;
+import com.backend.softtrainer.entities.flow.Text;
+import com.backend.softtrainer.entities.messages.HintMessage;
+import com.backend.softtrainer.entities.messages.Message;
+import com.backend.softtrainer.entities.messages.SingleChoiceQuestionMessage;
+import com.backend.softtrainer.entities.messages.TextMessage;
+import com.backend.softtrainer.interpreter.ConditionScriptEnginePool;
+import com.backend.softtrainer.interpreter.ChatMessageSnapshot;
+import com.backend.softtrainer.interpreter.ConditionScriptPredicateCache;
+import com.backend.softtrainer.repositories.ChatRepository;
+import com.backend.softtrainer.repositories.MessageRepository;
+import com.backend.softtrainer.services.chatgpt.ChatGptService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InputMessageServiceTest {
+
+  private static final long SIMULATION_ID = 7L;
+
+  private final ChatRepository chatRepository = mock(ChatRepository.class);
+
+  private final FlowService flowService = mock(FlowService.class);
+
+  private final MessageService messageService = mock(MessageService.class);
+
+  private final InputMessageService inputMessageService = new InputMessageService(
+    chatRepository,
+    flowService,
+    mock(UserHyperParameterService.class),
+    mock(ConditionScriptPredicateCache.class),
+    mock(ConditionScriptEnginePool.class),
+    mock(ChatGptService.class),
+    mock(PromptRegistry.class),
+    mock(UserDataExtractor.class),
+    messageService,
+    mock(AiMessageCompletionRegistry.class),
+    mock(OpenAnswerClassificationCache.class),
+    mock(OpenAnswerMatcher.class),
+    mock(MessageRepository.class),
+    mock(ApplicationEventPublisher.class)
+  );
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void messagesOfOneHopAreStoredInOneBatchInTheFlowOrder() throws Exception {
+    var simulation = Simulation.builder().id(SIMULATION_ID).build();
+    var question = node(SingleChoiceQuestion.builder(), 1L, MessageType.SINGLE_CHOICE_QUESTION, simulation);
+    var questionMessage = SingleChoiceQuestionMessage.builder()
+      .id("q1")
+      .messageType(MessageType.SINGLE_CHOICE_QUESTION)
+      .flowNode(question)
+      .options("Yes||No")
+      .correct("1")
+      .timestamp(Message.nextTimestamp())
+      .build();
+    var chat = Chat.builder()
+      .id(1L)
+      .simulation(simulation)
+      .hearts(3.0)
+      .messages(new ArrayList<>(List.of(questionMessage)))
+      .build();
+
+    // five texts and the next question, converted back to back
+    for (long orderNumber = 2; orderNumber <= 6; orderNumber++) {
+      var text = node(Text.builder().text("Text " + orderNumber), orderNumber, MessageType.TEXT, simulation);
+      when(flowService.findAllBySimulationIdAndPreviousOrderNumber(SIMULATION_ID, orderNumber - 1))
+        .thenReturn(List.of(text));
+    }
+    var nextQuestion = node(SingleChoiceQuestion.builder(), 7L, MessageType.SINGLE_CHOICE_QUESTION, simulation);
+    when(flowService.findAllBySimulationIdAndPreviousOrderNumber(SIMULATION_ID, 6L)).thenReturn(List.of(nextQuestion));
+    when(chatRepository.findByIdWithMessages(1L)).thenReturn(Optional.of(chat));
+    when(messageService.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    var answer = new SingleChoiceAnswerMessageDto();
+    answer.setId("q1");
+    answer.setChatId(1L);
+    answer.setMessageType(MessageType.SINGLE_CHOICE_QUESTION);
+    answer.setAnswer("Yes");
+    inputMessageService.buildResponse(answer).get();
+
+    ArgumentCaptor<List<Message>> batch = ArgumentCaptor.forClass(List.class);
+    verify(messageService).saveAll(batch.capture());
+    var stored = batch.getValue();
+
+    assertEquals(6, stored.size());
+    for (int i = 0; i < 5; i++) {
+      assertInstanceOf(TextMessage.class, stored.get(i));
+      assertEquals("Text " + (i + 2), ((TextMessage) stored.get(i)).getContent());
+    }
+    assertInstanceOf(SingleChoiceQuestionMessage.class, stored.get(5));
+    for (int i = 1; i < stored.size(); i++) {
+      assertTrue(stored.get(i).getTimestamp().isAfter(stored.get(i - 1).getTimestamp()),
+        "message " + i + " is not after the previous one");
+      assertEquals(stored.get(i).getTimestamp(), stored.get(i).getTimestamp().truncatedTo(ChronoUnit.MICROS));
+    }
+    assertTrue(stored.get(0).getTimestamp().isAfter(questionMessage.getTimestamp()));
+
+    var reloaded = stored.stream().sorted(Comparator.comparing(Message::getTimestamp)).toList();
+    assertEquals(stored, reloaded);
+  }
+
+  @Test
+  void timedOutWaitStopsReadingTheDb() throws Exception {
+    var messageRepository = mock(MessageRepository.class);
+    when(messageRepository.findById("hint")).thenReturn(Optional.empty());
+    var service = new InputMessageService(
+      chatRepository,
+      flowService,
+      mock(UserHyperParameterService.class),
+      mock(ConditionScriptPredicateCache.class),
+      mock(ConditionScriptEnginePool.class),
+      mock(ChatGptService.class),
+      mock(PromptRegistry.class),
+      mock(UserDataExtractor.class),
+      messageService,
+      new AiMessageCompletionRegistry(Duration.ofMinutes(10), 100, Duration.ofMillis(10)),
+      mock(OpenAnswerClassificationCache.class),
+      mock(OpenAnswerMatcher.class),
+      messageRepository,
+      mock(ApplicationEventPublisher.class)
+    );
+    var hint = HintMessage.builder().id("hint").messageType(MessageType.HINT_MESSAGE).build();
+
+    // the request gives up the way the controller does on its timeout
+    var content = service.awaitAiContent(hint);
+    assertThrows(TimeoutException.class, () -> content.get(100, TimeUnit.MILLISECONDS));
+    verify(messageRepository, atLeastOnce()).findById("hint");
+    content.cancel(false);
+
+    Thread.sleep(50);
+    clearInvocations(messageRepository);
+    Thread.sleep(100);
+    verify(messageRepository, never()).findById(any());
+  }
+
+  @Test
+  void messageMissingFromTheSnapshotIsReadFromTheDb() {
+    var simulation = Simulation.builder().id(SIMULATION_ID).build();
+    var question = node(SingleChoiceQuestion.builder().options("Yes||No").correct("1"), 1L,
+      MessageType.SINGLE_CHOICE_QUESTION, simulation);
+    var earlierQuestion = node(SingleChoiceQuestion.builder().options("Yes||No").correct("2"), 2L,
+      MessageType.SINGLE_CHOICE_QUESTION, simulation);
+    var loaded = SingleChoiceQuestionMessage.builder()
+      .id("loaded")
+      .messageType(MessageType.SINGLE_CHOICE_QUESTION)
+      .flowNode(question)
+      .timestamp(Message.nextTimestamp())
+      .build();
+    var firstTry = SingleChoiceQuestionMessage.builder()
+      .id("first try")
+      .messageType(MessageType.SINGLE_CHOICE_QUESTION)
+      .flowNode(earlierQuestion)
+      .timestamp(Message.nextTimestamp())
+      .build();
+    var retry = SingleChoiceQuestionMessage.builder()
+      .id("retry")
+      .messageType(MessageType.SINGLE_CHOICE_QUESTION)
+      .flowNode(earlierQuestion)
+      .timestamp(Message.nextTimestamp())
+      .build();
+    when(messageService.findQuestionUserMessageByOrderNumber(1L, 2L)).thenReturn(List.of(retry, firstTry));
+    var snapshot = ChatMessageSnapshot.of(1L, List.of(loaded));
+
+    assertEquals("loaded", inputMessageService.getMessage(snapshot, 1L).getId());
+    verify(messageService, never()).findQuestionUserMessageByOrderNumber(any(), anyLong());
+
+    assertEquals("retry", inputMessageService.getMessage(snapshot, 2L).getId());
+    verify(messageService).findQuestionUserMessageByOrderNumber(1L, 2L);
+
+    assertNull(inputMessageService.getMessage(snapshot, 3L));
+  }
+
+  private static FlowNode node(final FlowNode.FlowNodeBuilder<?, ?> builder,
+                               final long orderNumber,
+                               final MessageType messageType,
+                               final Simulation simulation) {
+    return builder
+      .id(orderNumber)
+      .orderNumber(orderNumber)
+      .previousOrderNumber(orderNumber - 1)
+      .messageType(messageType)
+      .simulation(simulation)
+      .build();
+  }
+
+}
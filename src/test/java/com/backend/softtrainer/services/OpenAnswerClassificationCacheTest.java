@@ -0,0 +1,70 @@
+package com.backend.softtrainer.services;
+
+import com.backend.softtrainer.entities.OpenAnswerClassification;
+import com.backend.softtrainer.repositories.OpenAnswerClassificationRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OpenAnswerClassificationCacheTest {
+
+  private static final String OPTIONS = "Coffee || Tea||Water";
+
+  private static final String RESPONSE = "{\"index\": 1, \"option\": \"Tea\"}";
+
+  @Test
+  void answersDifferingOnlyInCaseSpacingAndPunctuationShareTheKey() {
+    var key = OpenAnswerClassificationCache.key(1L, OPTIONS, "I'd like  a cup of TEA!");
+
+    assertEquals(key, OpenAnswerClassificationCache.key(1L, "Coffee||Tea||Water", "i d like a cup of tea"));
+    assertNotEquals(key, OpenAnswerClassificationCache.key(2L, OPTIONS, "I'd like a cup of tea"));
+    assertNotEquals(key, OpenAnswerClassificationCache.key(1L, "Coffee||Tea", "I'd like a cup of tea"));
+  }
+
+  @Test
+  void storedClassificationIsServedFromMemory() {
+    var repository = mock(OpenAnswerClassificationRepository.class);
+    var cache = new OpenAnswerClassificationCache(repository, 100);
+    var key = OpenAnswerClassificationCache.key(1L, OPTIONS, "tea please");
+
+    cache.put(key, 7L, RESPONSE);
+
+    assertEquals(Optional.of(RESPONSE), cache.find(key, 7L));
+    verify(repository).upsert(1L, key.optionsHash(), key.answerHash(), "tea please", 7L, RESPONSE);
+    verify(repository, times(0)).findByFlowNodeIdAndOptionsHashAndAnswerHash(any(), any(), any());
+  }
+
+  @Test
+  void classificationStoredBeforeRestartIsLoadedFromDb() {
+    var repository = mock(OpenAnswerClassificationRepository.class);
+    var key = OpenAnswerClassificationCache.key(1L, OPTIONS, "tea please");
+    when(repository.findByFlowNodeIdAndOptionsHashAndAnswerHash(1L, key.optionsHash(), key.answerHash()))
+      .thenReturn(Optional.of(OpenAnswerClassification.builder().promptId(7L).response(RESPONSE).build()));
+    var cache = new OpenAnswerClassificationCache(repository, 100);
+
+    assertEquals(Optional.of(RESPONSE), cache.find(key, 7L));
+    assertEquals(Optional.of(RESPONSE), cache.find(key, 7L));
+    verify(repository, times(1)).findByFlowNodeIdAndOptionsHashAndAnswerHash(1L, key.optionsHash(), key.answerHash());
+  }
+
+  @Test
+  void classificationOfAnotherPromptIsMiss() {
+    var repository = mock(OpenAnswerClassificationRepository.class);
+    var cache = new OpenAnswerClassificationCache(repository, 100);
+    var key = OpenAnswerClassificationCache.key(1L, OPTIONS, "tea please");
+
+    cache.put(key, 7L, RESPONSE);
+
+    assertTrue(cache.find(key, 8L).isEmpty());
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.backend.softtrainer.services;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenAnswerMatcherTest {
+
+  private static final String OPTIONS = "Ask the manager for help || Solve the problem on my own || Ignore the problem";
+
+  private final OpenAnswerMatcher matcher = new OpenAnswerMatcher(0.85, 0.2);
+
+  @Test
+  void answerRepeatingTheOptionIsMatchedLocally() throws Exception {
+    var match = matcher.match(OPTIONS, "  solve the problem on my own!").orElseThrow();
+
+    assertEquals(1, match.index());
+    assertEquals("Solve the problem on my own", match.option());
+
+    var response = new JSONObject(match.toClassificationResponse());
+    assertEquals(1, response.getInt("index"));
+    assertEquals("Solve the problem on my own", response.getString("option"));
+  }
+
+  @Test
+  void answerWithTypoIsMatchedLocally() {
+    var match = matcher.match(OPTIONS, "Ask the manger for help").orElseThrow();
+
+    assertEquals(0, match.index());
+  }
+
+  @Test
+  void paraphrasedAnswerIsLeftToTheAi() {
+    assertTrue(matcher.match(OPTIONS, "I would talk to my boss about it").isEmpty());
+  }
+
+  @Test
+  void negatedAnswerIsLeftToTheAi() {
+    var options = "I would delegate the task || I would do the task myself";
+
+    assertTrue(OpenAnswerMatcher.similarity("i would not delegate the task", "i would delegate the task") >= 0.85);
+    assertTrue(matcher.match(options, "I would not delegate the task").isEmpty());
+    assertTrue(matcher.match(options, "I wouldn't delegate the task").isEmpty());
+    assertTrue(matcher.match(OPTIONS, "Don't ignore the problem").isEmpty());
+  }
+
+  @Test
+  void answerToANegatedOptionWithoutTheNegationIsLeftToTheAi() {
+    var options = "I would not delegate the task || I would do the task myself";
+
+    assertTrue(matcher.match(options, "I would delegate the task").isEmpty());
+    assertEquals(0, matcher.match(options, "I would not delegate the task").orElseThrow().index());
+  }
+
+  @Test
+  void answerSayingMoreThanTheOptionIsLeftToTheAi() {
+    assertTrue(matcher.match(OPTIONS, "Ask the manager for help later").isEmpty());
+  }
+
+  @Test
+  void statsCountMatchedAndEscalatedAnswers() {
+    matcher.match(OPTIONS, "Ignore the problem");
+    matcher.match(OPTIONS, "Not sure");
+
+    var stats = matcher.stats();
+    assertEquals(1L, stats.get("matched"));
+    assertEquals(1L, stats.get("escalated"));
+    assertEquals(0.5, stats.get("hitRate"));
+  }
+
+}
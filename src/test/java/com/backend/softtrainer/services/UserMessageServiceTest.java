@@ -0,0 +1,98 @@
+package com.backend.softtrainer.services;
+
+import com.backend.softtrainer.dtos.ChatParams;
+import com.backend.softtrainer.dtos.MessageAnswerOptionDto;
+import com.backend.softtrainer.dtos.client.UserSingleChoiceMessageDto;
+import com.backend.softtrainer.dtos.client.UserTextMessageDto;
+import com.backend.softtrainer.entities.Character;
+import com.backend.softtrainer.entities.enums.MessageType;
+import com.backend.softtrainer.entities.messages.SingleChoiceQuestionMessage;
+import com.backend.softtrainer.entities.messages.TextMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class UserMessageServiceTest {
+
+  private final UserMessageService userMessageService = new UserMessageService(100);
+
+  private static SingleChoiceQuestionMessage question(final Integer version, final String answer) {
+    return SingleChoiceQuestionMessage.builder()
+      .id("q1")
+      .version(version)
+      .timestamp(LocalDateTime.of(2024, 5, 1, 10, 0))
+      .messageType(MessageType.SINGLE_CHOICE_QUESTION)
+      .options("Yes||No")
+      .correct("1")
+      .answer(answer)
+      .build();
+  }
+
+  private static TextMessage text(final Character character) {
+    return TextMessage.builder()
+      .id("t1")
+      .version(0)
+      .timestamp(LocalDateTime.of(2024, 5, 1, 10, 0))
+      .messageType(MessageType.TEXT)
+      .character(character)
+      .content("Hi")
+      .build();
+  }
+
+  @Test
+  void optionIdsAreTheSameOnEveryRender() {
+    var first = (UserSingleChoiceMessageDto) userMessageService
+      .combineMessages(List.of(question(null, "")), new ChatParams(3.0)).get(0);
+    var second = (UserSingleChoiceMessageDto) userMessageService
+      .combineMessages(List.of(question(null, "")), new ChatParams(3.0)).get(0);
+
+    var firstIds = first.getOptions().stream().map(MessageAnswerOptionDto::getOptionId).toList();
+    assertEquals(firstIds, second.getOptions().stream().map(MessageAnswerOptionDto::getOptionId).toList());
+    assertNotEquals(firstIds.get(0), firstIds.get(1));
+  }
+
+  @Test
+  void historyIsRenderedOncePerMessageVersion() {
+    var first = userMessageService.combineHistory(List.of(question(0, "")), new ChatParams(3.0)).get(0);
+    var again = userMessageService.combineHistory(List.of(question(0, "")), new ChatParams(3.0)).get(0);
+    assertSame(first, again);
+
+    var answered = (UserSingleChoiceMessageDto) userMessageService
+      .combineHistory(List.of(question(1, "Yes")), new ChatParams(3.0)).get(0);
+    assertNotSame(first, answered);
+    assertEquals("Yes", answered.getContent());
+    assertEquals(1L, userMessageService.renderCacheStats().hitCount());
+  }
+
+  @Test
+  void changedCharacterIsRenderedAgain() {
+    var message = text(Character.builder().id(1L).flowCharacterId(2L).name("Sam").avatar("sam.png").build());
+    var first = (UserTextMessageDto) userMessageService.combineHistory(List.of(message), new ChatParams(3.0)).get(0);
+
+    var renamed = text(Character.builder().id(1L).flowCharacterId(2L).name("Samuel").avatar("samuel.png").build());
+    var again = (UserTextMessageDto) userMessageService.combineHistory(List.of(renamed), new ChatParams(3.0)).get(0);
+
+    assertNotSame(first, again);
+    assertEquals("Samuel", again.getCharacter().getName());
+    assertEquals("samuel.png", again.getCharacter().getAvatar());
+  }
+
+  @Test
+  void messagesWithRuntimeHintsAreNotCached() {
+    var message = question(0, "No");
+    message.setHasHint(true);
+
+    var first = userMessageService.combineHistory(List.of(message), new ChatParams(3.0)).get(0);
+    var again = userMessageService.combineHistory(List.of(message), new ChatParams(3.0)).get(0);
+
+    assertNotSame(first, again);
+    assertEquals(0, userMessageService.renderCacheSize());
+  }
+
+}
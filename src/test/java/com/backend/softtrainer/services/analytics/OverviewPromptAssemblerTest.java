@@ -0,0 +1,65 @@
+package com.backend.softtrainer.services.analytics;
+
+import com.backend.softtrainer.services.chatgpt.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OverviewPromptAssemblerTest {
+
+    private static final String TEMPLATE = "Team {organization_name}: heatmap {team_heatmap}, members {member_analytics}, "
+        + "departments {department_distribution}";
+
+    private static final List<String> SECTIONS = List.of("team_heatmap", "member_analytics", "department_distribution");
+
+    @Test
+    void everythingIsIncludedWithinTheBudget() {
+        var assembler = new OverviewPromptAssembler(1000);
+
+        var assembled = assembler.assemble(TEMPLATE, Map.of(
+            "organization_name", "Acme",
+            "team_heatmap", "hot",
+            "member_analytics", List.of("ann", "bob"),
+            "department_distribution", "{sales=2}"
+        ), SECTIONS);
+
+        assertEquals("Team Acme: heatmap hot, members [ann, bob], departments {sales=2}", assembled.prompt());
+        assertTrue(assembled.omitted().isEmpty());
+    }
+
+    @Test
+    void listSectionKeepsTheItemsWhichFitAndLowerPrioritySectionIsLeftOut() {
+        var member = "m".repeat(40);
+        var base = TokenEstimator.estimate("Team Acme: heatmap , members , departments ");
+        var heatmapAndBrackets = 2;
+        var budget = base + heatmapAndBrackets + 2 * TokenEstimator.estimate(member + ", ") + 5;
+        var assembler = new OverviewPromptAssembler(budget);
+
+        var assembled = assembler.assemble(TEMPLATE, Map.of(
+            "organization_name", "Acme",
+            "team_heatmap", "hot",
+            "member_analytics", List.of(member, member, member, member),
+            "department_distribution", "sales ".repeat(20)
+        ), SECTIONS);
+
+        assertEquals(List.of(member, member), assembled.analytics().get("member_analytics"));
+        assertEquals(2, assembled.omitted().get("member_analytics"));
+        assertEquals(1, assembled.omitted().get("department_distribution"));
+        assertFalse(assembled.prompt().contains("{department_distribution}"));
+        assertTrue(assembled.estimatedTokens() <= budget);
+    }
+
+    @Test
+    void tokensAreNeverEstimatedBelowFourCharactersPerToken() {
+        assertEquals(5, TokenEstimator.estimate("internationalization"));
+        assertEquals(7, TokenEstimator.estimate("{\"a\":1}"));
+        assertEquals(5, TokenEstimator.estimate("                 "));
+        assertEquals(6, TokenEstimator.estimate("привіт"));
+    }
+
+}
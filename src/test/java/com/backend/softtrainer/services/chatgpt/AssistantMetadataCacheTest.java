@@ -0,0 +1,92 @@
+package com.backend.softtrainer.services.chatgpt;
+
+import com.backend.softtrainer.services.chatgpt.ModelRouter.Operation;
+import io.github.stefanbratanov.jvm.openai.Assistant;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssistantMetadataCacheTest {
+
+  private final AtomicInteger retrieves = new AtomicInteger();
+
+  private final AtomicLong time = new AtomicLong();
+
+  private final AssistantMetadataCache cache = new AssistantMetadataCache(assistantId -> {
+    retrieves.incrementAndGet();
+    try {
+      Thread.sleep(20);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return new Assistant(assistantId, 0, "Hints " + retrieves.get(), null, "gpt-4o-mini", null, List.of(), null, Map.of(),
+      null, null, null);
+  }, Duration.ofMinutes(30), time::get);
+
+  @Test
+  void runsNeverLoadTheMetadata() {
+    assertTrue(cache.getIfPresent("asst").isEmpty());
+    assertTrue(cache.recordSkippedRetrieve(Operation.HINT, "asst").isEmpty());
+
+    assertEquals(0, retrieves.get());
+    assertTrue(cache.getIfPresent("asst").isEmpty());
+  }
+
+  @Test
+  void latencySavedPerHintComesFromTheMeasuredLoad() throws Exception {
+    cache.reload("asst").get(5, TimeUnit.SECONDS);
+    assertEquals("Hints 1", cache.getIfPresent("asst").orElseThrow().name());
+
+    var saved = cache.recordSkippedRetrieve(Operation.HINT, "asst").orElseThrow();
+    cache.recordSkippedRetrieve(Operation.HINT, "other-asst");
+    assertTrue(saved.toMillis() >= 20);
+
+    var hint = (Map<?, ?>) cache.latencySaved().get("hint");
+    assertEquals(2L, hint.get("runs"));
+    assertTrue((long) hint.get("avgSavedMs") >= 20);
+    assertEquals(0L, ((Map<?, ?>) cache.latencySaved().get("summary")).get("runs"));
+    assertEquals(1, retrieves.get());
+  }
+
+  @Test
+  void assistantsOfTheActivePromptsAreLoadedOnce() throws Exception {
+    cache.warm(Set.of("asst-hint", "asst-summary"));
+    awaitRetrieves(2);
+    cache.warm(Set.of("asst-hint", "asst-summary"));
+
+    Thread.sleep(50);
+    assertEquals(2, retrieves.get());
+    assertTrue(cache.getIfPresent("asst-hint").isPresent());
+  }
+
+  @Test
+  void staleAssistantIsRefreshedInTheBackground() throws Exception {
+    cache.reload("asst").get(5, TimeUnit.SECONDS);
+
+    time.addAndGet(Duration.ofMinutes(31).toNanos());
+    assertEquals("Hints 1", cache.getIfPresent("asst").orElseThrow().name());
+    awaitRetrieves(2);
+
+    for (int i = 0; i < 100 && !cache.getIfPresent("asst").orElseThrow().name().equals("Hints 2"); i++) {
+      Thread.sleep(10);
+    }
+    assertEquals("Hints 2", cache.getIfPresent("asst").orElseThrow().name());
+  }
+
+  private void awaitRetrieves(final int expected) throws InterruptedException {
+    for (int i = 0; i < 500 && retrieves.get() < expected; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, retrieves.get());
+  }
+
+}
@@ -0,0 +1,107 @@
+package com.backend.softtrainer.services.chatgpt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AssistantRequestCoalescerTest {
+
+  private final AssistantRequestCoalescer coalescer = new AssistantRequestCoalescer();
+
+  @Test
+  void identicalRequestsInFlightShareOneRun() throws Exception {
+    var runs = new AtomicInteger();
+    var run = new CompletableFuture<String>();
+
+    var first = coalescer.coalesce("[Test]", "asst", "gpt-4o-mini", "json", "prompt", null, listener -> {
+      runs.incrementAndGet();
+      return run;
+    });
+    var second = coalescer.coalesce("[Test]", "asst", "gpt-4o-mini", "json", "prompt", null, listener -> {
+      runs.incrementAndGet();
+      return CompletableFuture.completedFuture("other");
+    });
+    run.complete("content");
+
+    assertEquals("content", first.get());
+    assertEquals("content", second.get());
+    assertEquals(1, runs.get());
+    assertEquals(1L, coalescer.stats().get("executed"));
+    assertEquals(1L, coalescer.stats().get("coalesced"));
+    assertEquals(0, coalescer.stats().get("inFlight"));
+  }
+
+  @Test
+  void streamedPartsGoToEveryCaller() throws Exception {
+    var run = new CompletableFuture<String>();
+    var shared = new AtomicReference<Consumer<String>>();
+    var first = new StringBuffer();
+    var second = new StringBuffer();
+
+    coalescer.coalesce("[Test]", "asst", null, "auto", "prompt", first::append, listener -> {
+      shared.set(listener);
+      return run;
+    });
+    shared.get().accept("Keep ");
+    var joined = coalescer.coalesce("[Test]", "asst", null, "auto", "prompt", second::append,
+      listener -> CompletableFuture.completedFuture("other"));
+    shared.get().accept("calm");
+    run.complete("Keep calm");
+
+    assertEquals("Keep calm", joined.get());
+    assertEquals("Keep calm", first.toString());
+    assertEquals("Keep calm", second.toString());
+  }
+
+  @Test
+  void requestsDifferingInAnyPartAreNotShared() throws Exception {
+    var run = new CompletableFuture<String>();
+    coalescer.coalesce("[Test]", "asst", "gpt-4o-mini", "json", "prompt", null, listener -> run);
+
+    assertEquals("auto", coalescer.coalesce("[Test]", "asst", "gpt-4o-mini", "auto", "prompt", null,
+      listener -> CompletableFuture.completedFuture("auto")).get());
+    assertEquals("other", coalescer.coalesce("[Test]", "other-asst", "gpt-4o-mini", "json", "prompt", null,
+      listener -> CompletableFuture.completedFuture("other")).get());
+    assertEquals("changed", coalescer.coalesce("[Test]", "asst", "gpt-4o-mini", "json", "changed prompt", null,
+      listener -> CompletableFuture.completedFuture("changed")).get());
+    assertEquals("model", coalescer.coalesce("[Test]", "asst", "gpt-3.5-turbo", "json", "prompt", null,
+      listener -> CompletableFuture.completedFuture("model")).get());
+  }
+
+  @Test
+  void finishedRunIsNotReused() throws Exception {
+    coalescer.coalesce("[Test]", "asst", "gpt-4o-mini", "json", "prompt", null,
+      listener -> CompletableFuture.completedFuture("first")).get();
+
+    assertEquals("second", coalescer.coalesce("[Test]", "asst", "gpt-4o-mini", "json", "prompt", null,
+      listener -> CompletableFuture.completedFuture("second")).get());
+  }
+
+  @Test
+  void failureIsSharedAndTheNextRequestStartsAgain() throws Exception {
+    var run = new CompletableFuture<String>();
+    var first = coalescer.coalesce("[Test]", "asst", "gpt-4o-mini", "json", "prompt", null, listener -> run);
+    var second = coalescer.coalesce("[Test]", "asst", "gpt-4o-mini", "json", "prompt", null, listener -> run);
+    run.completeExceptionally(new IllegalStateException("run failed"));
+
+    assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, first::get).getCause());
+    assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, second::get).getCause());
+
+    var next = coalescer.coalesce("[Test]", "asst", "gpt-4o-mini", "json", "prompt", null, listener -> {
+      throw new IllegalStateException("thread is not created");
+    });
+    assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, next::get).getCause());
+    assertEquals(0, coalescer.stats().get("inFlight"));
+    assertEquals("retried", coalescer.coalesce("[Test]", "asst", "gpt-4o-mini", "json", "prompt", null,
+      listener -> CompletableFuture.completedFuture("retried")).get());
+  }
+
+}
@@ -0,0 +1,136 @@
+package com.backend.softtrainer.services.chatgpt;
+
+import com.backend.softtrainer.services.chatgpt.AssistantRequestDispatcher.Lane;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssistantRequestDispatcherTest {
+
+  private final ExecutorService callers = Executors.newCachedThreadPool();
+
+  @AfterEach
+  void shutdown() {
+    callers.shutdownNow();
+  }
+
+  @Test
+  void requestOverTheConcurrencyLimitWaitsForARelease() throws Exception {
+    var dispatcher = new AssistantRequestDispatcher(2, 2, 1_000_000, Duration.ofSeconds(20), Duration.ofMinutes(5));
+    var first = new CompletableFuture<String>();
+    dispatcher.dispatch("[Test]", Lane.INTERACTIVE, "first", () -> first);
+    dispatcher.dispatch("[Test]", Lane.INTERACTIVE, "second", () -> new CompletableFuture<String>());
+
+    var third = callers.submit(() -> dispatcher.dispatch("[Test]", Lane.INTERACTIVE, "third",
+      () -> CompletableFuture.completedFuture("third")).get());
+    awaitLane(dispatcher, "interactive", lane -> lane.get("waiting").equals(1));
+    assertFalse(third.isDone());
+
+    first.complete("first");
+    assertEquals("third", third.get(5, TimeUnit.SECONDS));
+    assertEquals(3L, lane(dispatcher, "interactive").get("dispatched"));
+  }
+
+  @Test
+  void interactiveRequestGoesBeforeAWaitingBatchOne() throws Exception {
+    var dispatcher = new AssistantRequestDispatcher(1, 1, 1_000_000, Duration.ofSeconds(20), Duration.ofMinutes(5));
+    var running = new CompletableFuture<String>();
+    dispatcher.dispatch("[Test]", Lane.INTERACTIVE, "running", () -> running);
+
+    List<String> started = new CopyOnWriteArrayList<>();
+    var batch = callers.submit(() -> dispatcher.dispatch("[Test]", Lane.BATCH, "overview", () -> {
+      started.add("batch");
+      return CompletableFuture.completedFuture("overview");
+    }).get());
+    awaitLane(dispatcher, "batch", lane -> lane.get("waiting").equals(1));
+    var interactive = callers.submit(() -> dispatcher.dispatch("[Test]", Lane.INTERACTIVE, "hint", () -> {
+      started.add("interactive");
+      return CompletableFuture.completedFuture("hint");
+    }).get());
+    awaitLane(dispatcher, "interactive", lane -> lane.get("waiting").equals(1));
+
+    running.complete("running");
+    assertEquals("hint", interactive.get(5, TimeUnit.SECONDS));
+    assertEquals("overview", batch.get(5, TimeUnit.SECONDS));
+    assertEquals(List.of("interactive", "batch"), started);
+  }
+
+  @Test
+  void requestOverTheTokenBudgetWaitsForTheWindow() throws Exception {
+    var dispatcher = new AssistantRequestDispatcher(10, 10, 10, Duration.ofSeconds(20), Duration.ofMinutes(5));
+    dispatcher.dispatch("[Test]", Lane.INTERACTIVE, "a".repeat(32), () -> CompletableFuture.completedFuture("first")).get();
+
+    var second = callers.submit(() -> dispatcher.dispatch("[Test]", Lane.INTERACTIVE, "b".repeat(32),
+      () -> CompletableFuture.completedFuture("second")));
+    awaitLane(dispatcher, "interactive", lane -> lane.get("waiting").equals(1));
+    assertEquals(8L, dispatcher.stats().get("tokensInLastMinute"));
+
+    callers.shutdownNow();
+    var failed = second.get(5, TimeUnit.SECONDS);
+    assertInstanceOf(InterruptedException.class, assertThrows(ExecutionException.class, failed::get).getCause());
+    assertEquals(0, lane(dispatcher, "interactive").get("waiting"));
+  }
+
+  @Test
+  void failedStartReleasesThePermit() throws Exception {
+    var dispatcher = new AssistantRequestDispatcher(1, 1, 1_000_000, Duration.ofSeconds(20), Duration.ofMinutes(5));
+    var failed = dispatcher.dispatch("[Test]", Lane.BATCH, "overview", () -> {
+      throw new IllegalStateException("thread is not created");
+    });
+
+    assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, failed::get).getCause());
+    assertEquals(0, lane(dispatcher, "batch").get("inFlight"));
+    assertEquals("next", dispatcher.dispatch("[Test]", Lane.BATCH, "overview",
+      () -> CompletableFuture.completedFuture("next")).get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void requestWaitingLongerThanTheMaxQueueWaitIsRejected() throws Exception {
+    var dispatcher = new AssistantRequestDispatcher(1, 1, 1_000_000, Duration.ofMillis(50), Duration.ofMinutes(5));
+    var running = new CompletableFuture<String>();
+    dispatcher.dispatch("[Test]", Lane.INTERACTIVE, "running", () -> running);
+
+    var rejected = dispatcher.dispatch("[Test]", Lane.INTERACTIVE, "hint",
+      () -> CompletableFuture.completedFuture("hint"));
+
+    assertInstanceOf(RejectedExecutionException.class, assertThrows(ExecutionException.class, rejected::get).getCause());
+    var interactive = lane(dispatcher, "interactive");
+    assertEquals(1L, interactive.get("rejected"));
+    assertEquals(1L, interactive.get("dispatched"));
+    assertEquals(0, interactive.get("waiting"));
+    assertEquals(1, interactive.get("inFlight"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> lane(final AssistantRequestDispatcher dispatcher, final String lane) {
+    return ((Map<String, Map<String, Object>>) dispatcher.stats().get("lanes")).get(lane);
+  }
+
+  private static void awaitLane(final AssistantRequestDispatcher dispatcher,
+                                final String lane,
+                                final Predicate<Map<String, Object>> condition) throws InterruptedException {
+    var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.test(lane(dispatcher, lane))) {
+      assertTrue(System.nanoTime() < deadline, "lane " + lane + " didn't reach the expected state");
+      Thread.sleep(10);
+    }
+  }
+
+}
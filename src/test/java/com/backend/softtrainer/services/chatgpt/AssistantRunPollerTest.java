@@ -0,0 +1,90 @@
+package com.backend.softtrainer.services.chatgpt;
+
+import io.github.stefanbratanov.jvm.openai.ThreadRun;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AssistantRunPollerTest {
+
+  private final AssistantRunPoller poller = new AssistantRunPoller(2, Duration.ofSeconds(5));
+
+  @AfterEach
+  void shutdown() {
+    poller.shutdown();
+  }
+
+  @Test
+  void runIsCompletedOnceItReachesTerminalStatus() throws Exception {
+    var polls = new AtomicInteger();
+
+    var run = poller.awaitTermination("run", () -> run(polls.incrementAndGet() < 3 ? "in_progress" : "completed"))
+      .get(5, TimeUnit.SECONDS);
+
+    assertEquals("completed", run.status());
+    assertEquals(3, polls.get());
+    assertEquals(0, poller.inFlightRuns());
+  }
+
+  @Test
+  void manyRunsShareTheSchedulerThreads() throws Exception {
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    List<CompletableFuture<ThreadRun>> runs = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      var polls = new AtomicInteger();
+      runs.add(poller.awaitTermination("run-" + i, () -> {
+        threads.add(Thread.currentThread().getName());
+        return run(polls.incrementAndGet() < 2 ? "queued" : "failed");
+      }));
+    }
+
+    for (var run : runs) {
+      assertEquals("failed", run.get(5, TimeUnit.SECONDS).status());
+    }
+    assertTrue(threads.size() <= 2, "polled on " + threads);
+  }
+
+  @Test
+  void runWhichNeverFinishesTimesOut() {
+    var shortPoller = new AssistantRunPoller(1, Duration.ofMillis(300));
+    try {
+      var run = shortPoller.awaitTermination("run", () -> run("in_progress"));
+
+      var error = assertThrows(ExecutionException.class, () -> run.get(5, TimeUnit.SECONDS));
+      assertInstanceOf(TimeoutException.class, error.getCause());
+    } finally {
+      shortPoller.shutdown();
+    }
+  }
+
+  @Test
+  void pollIntervalBacksOff() {
+    assertEquals(Duration.ofMillis(200), AssistantRunPoller.pollInterval(0));
+    assertTrue(AssistantRunPoller.pollInterval(3).compareTo(AssistantRunPoller.pollInterval(2)) > 0);
+    assertEquals(Duration.ofSeconds(2), AssistantRunPoller.pollInterval(100));
+  }
+
+  private static ThreadRun run(final String status) {
+    var run = mock(ThreadRun.class);
+    when(run.status()).thenReturn(status);
+    return run;
+  }
+
+}
@@ -0,0 +1,167 @@
+package com.backend.softtrainer.services.chatgpt;
+
+import com.backend.softtrainer.services.chatgpt.AssistantRequestDispatcher.Lane;
+import com.backend.softtrainer.services.chatgpt.ModelRouter.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelRouterTest {
+
+  private final AssistantRequestDispatcher dispatcher = new AssistantRequestDispatcher(1, 1, 1_000_000, Duration.ofSeconds(20), Duration.ofMinutes(5));
+
+  private ModelRouter router(final Duration probeInterval) {
+    return new ModelRouter(new String[]{"fast", "backup"}, new String[]{"cheap", "fast"},
+      Duration.ofSeconds(8), 0.2, Duration.ofSeconds(15), probeInterval, 60_000, dispatcher);
+  }
+
+  @Test
+  void slowOrFailingModelIsSkippedForInteractiveOperations() {
+    var router = router(Duration.ofMinutes(1));
+    assertEquals("fast", router.route(Operation.CLASSIFICATION).model());
+
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(12), false);
+    assertEquals("backup", router.route(Operation.CLASSIFICATION).model());
+
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    assertEquals("fast", router.route(Operation.CLASSIFICATION).model());
+
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), true);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), true);
+    assertEquals("backup", router.route(Operation.CLASSIFICATION).model());
+  }
+
+  @Test
+  void batchOperationsIgnoreTheLatencyTargetAndTheFastestIsTakenWhenNoneIsHealthy() {
+    var router = router(Duration.ofMinutes(1));
+    router.record(Operation.OVERVIEW, "cheap", Duration.ofSeconds(40), false);
+    assertEquals("cheap", router.route(Operation.OVERVIEW).model());
+
+    router.record(Operation.OVERVIEW, "cheap", Duration.ofSeconds(40), true);
+    router.record(Operation.OVERVIEW, "cheap", Duration.ofSeconds(40), true);
+    router.record(Operation.OVERVIEW, "fast", Duration.ofSeconds(5), true);
+    assertEquals("fast", router.route(Operation.OVERVIEW).model());
+  }
+
+  @Test
+  void unhealthyModelIsProbedAgainAfterTheProbeInterval() throws Exception {
+    var router = router(Duration.ofMillis(50));
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), true);
+    assertEquals("backup", router.route(Operation.CLASSIFICATION).model());
+
+    Thread.sleep(100);
+    assertEquals("fast", router.route(Operation.CLASSIFICATION).model());
+    assertEquals("backup", router.route(Operation.CLASSIFICATION).model());
+
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    router.record(Operation.CLASSIFICATION, "fast", Duration.ofSeconds(1), false);
+    assertEquals("fast", router.route(Operation.CLASSIFICATION).model());
+  }
+
+  @Test
+  void withoutConfiguredModelsTheRunKeepsTheModelOfItsAssistant() {
+    var router = new ModelRouter(new String[0], new String[]{""},
+      Duration.ofSeconds(8), 0.2, Duration.ofSeconds(15), Duration.ofMinutes(1), 60_000, dispatcher);
+
+    assertNull(router.route(Operation.HINT).model());
+    assertNull(router.route(Operation.OVERVIEW).model());
+  }
+
+  @Test
+  void batchModelsTooSmallForTheOverviewBudgetAreDropped() {
+    var router = new ModelRouter(new String[0], new String[]{"gpt-3.5-turbo", "gpt-4o-mini"},
+      Duration.ofSeconds(8), 0.2, Duration.ofSeconds(15), Duration.ofMinutes(1), 60_000, dispatcher);
+
+    router.record(Operation.OVERVIEW, "gpt-4o-mini", Duration.ofSeconds(1), true);
+    router.record(Operation.OVERVIEW, "gpt-4o-mini", Duration.ofSeconds(1), true);
+    assertEquals("gpt-4o-mini", router.route(Operation.OVERVIEW).model());
+  }
+
+  @Test
+  void hintOnAModelWithoutRunsIsExpectedToTakeTheLatencyTarget() {
+    var router = new ModelRouter(new String[]{"fast"}, new String[0],
+      Duration.ofSeconds(10), 0.2, Duration.ofSeconds(15), Duration.ofMinutes(1), 60_000, dispatcher);
+    assertFalse(router.route(Operation.HINT).degraded());
+
+    var running = new CompletableFuture<String>();
+    dispatcher.dispatch("[Test]", Lane.INTERACTIVE, "running", () -> running);
+    assertTrue(router.route(Operation.HINT).degraded());
+    running.complete("done");
+  }
+
+  @Test
+  void hintIsDegradedWhenTheQueueMakesItExceedTheBudget() {
+    var router = new ModelRouter(new String[]{"fast"}, new String[]{"fast"},
+      Duration.ofSeconds(30), 0.2, Duration.ofSeconds(15), Duration.ofMinutes(1), 60_000, dispatcher);
+    router.record(Operation.HINT, "fast", Duration.ofSeconds(10), false);
+    assertFalse(router.route(Operation.HINT).degraded());
+
+    var running = new CompletableFuture<String>();
+    dispatcher.dispatch("[Test]", Lane.INTERACTIVE, "running", () -> running);
+    assertTrue(router.route(Operation.HINT).degraded());
+    assertEquals(1L, router.stats().get("degradedHints"));
+
+    running.complete("done");
+    assertFalse(router.route(Operation.HINT).degraded());
+  }
+
+  @Test
+  void slowOverviewsAndSummariesDoNotDegradeTheHints() {
+    var router = new ModelRouter(new String[]{"fast"}, new String[]{"fast"},
+      Duration.ofSeconds(8), 0.2, Duration.ofSeconds(15), Duration.ofMinutes(1), 60_000, dispatcher);
+    router.record(Operation.HINT, "fast", Duration.ofSeconds(3), false);
+    router.record(Operation.OVERVIEW, "fast", Duration.ofSeconds(60), false);
+    router.record(Operation.SUMMARY, "fast", Duration.ofSeconds(40), false);
+
+    var route = router.route(Operation.HINT);
+    assertEquals("fast", route.model());
+    assertFalse(route.degraded());
+  }
+
+  @Test
+  void withoutInteractiveModelsHintsAreNeverDegraded() {
+    var router = new ModelRouter(new String[0], new String[0],
+      Duration.ofSeconds(8), 0.2, Duration.ofSeconds(15), Duration.ofMinutes(1), 60_000, dispatcher);
+    router.record(Operation.OVERVIEW, null, Duration.ofSeconds(60), false);
+    router.record(Operation.HINT, null, Duration.ofSeconds(40), false);
+
+    assertFalse(router.route(Operation.HINT).degraded());
+  }
+
+  @Test
+  void degradedHintsProbeTheModelOncePerProbeInterval() throws Exception {
+    var router = new ModelRouter(new String[]{"fast"}, new String[0],
+      Duration.ofSeconds(8), 0.2, Duration.ofSeconds(15), Duration.ofMillis(50), 60_000, dispatcher);
+    router.record(Operation.HINT, "fast", Duration.ofSeconds(40), false);
+    assertTrue(router.route(Operation.HINT).degraded());
+
+    Thread.sleep(100);
+    assertFalse(router.route(Operation.HINT).degraded());
+    assertTrue(router.route(Operation.HINT).degraded());
+
+    router.record(Operation.HINT, "fast", Duration.ofSeconds(2), false);
+    router.record(Operation.HINT, "fast", Duration.ofSeconds(2), false);
+    router.record(Operation.HINT, "fast", Duration.ofSeconds(2), false);
+    router.record(Operation.HINT, "fast", Duration.ofSeconds(2), false);
+    router.record(Operation.HINT, "fast", Duration.ofSeconds(2), false);
+    router.record(Operation.HINT, "fast", Duration.ofSeconds(2), false);
+    assertFalse(router.route(Operation.HINT).degraded());
+  }
+
+}
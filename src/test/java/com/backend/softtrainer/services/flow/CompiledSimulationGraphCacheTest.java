@@ -0,0 +1,52 @@
+package com.backend.softtrainer.services.flow;
+
+import com.backend.softtrainer.entities.enums.MessageType;
+import com.backend.softtrainer.entities.flow.Text;
+import com.backend.softtrainer.repositories.FlowRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CompiledSimulationGraphCacheTest {
+
+  private final FlowRepository flowRepository = mock(FlowRepository.class);
+
+  @Test
+  void graphIsCompiledOnceUntilItIsEvicted() {
+    var text = Text.builder().id(1L).orderNumber(1L).previousOrderNumber(0L).messageType(MessageType.TEXT).build();
+    when(flowRepository.findAllBySimulationIdWithCharacters(7L)).thenReturn(List.of(text));
+    var cache = new CompiledSimulationGraphCache(flowRepository, 10);
+
+    var graph = cache.get(7L);
+    assertSame(graph, cache.get(7L));
+    assertEquals(List.of(text), graph.findAllByPreviousOrderNumber(0L));
+    verify(flowRepository, times(1)).findAllBySimulationIdWithCharacters(7L);
+
+    cache.evict(7L);
+    assertNotSame(graph, cache.get(7L));
+    verify(flowRepository, times(2)).findAllBySimulationIdWithCharacters(7L);
+  }
+
+  @Test
+  void cacheIsBoundedBySize() {
+    when(flowRepository.findAllBySimulationIdWithCharacters(anyLong())).thenReturn(List.of());
+    var cache = new CompiledSimulationGraphCache(flowRepository, 10);
+
+    for (long simulationId = 0; simulationId < 100; simulationId++) {
+      cache.get(simulationId);
+    }
+
+    assertTrue(cache.size() <= 10);
+  }
+
+}